@@ -0,0 +1,85 @@
+package com.reactive.functionalendpoints.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactive.functionalendpoints.app.RouterFunctionConfig;
+import com.reactive.functionalendpoints.diagnostico.FiltroLentas;
+import com.reactive.functionalendpoints.diagnostico.RegistroLentas;
+import com.reactive.functionalendpoints.handler.CategoriaHandler;
+import com.reactive.functionalendpoints.handler.DiagnosticoHandler;
+import com.reactive.functionalendpoints.handler.FotoHandler;
+import com.reactive.functionalendpoints.handler.ListadoStreaming;
+import com.reactive.functionalendpoints.handler.MultipartStreaming;
+import com.reactive.functionalendpoints.handler.ProductoHandler;
+import com.reactive.functionalendpoints.limites.FiltroAdmision;
+import com.reactive.functionalendpoints.models.services.BusCambios;
+import com.reactive.functionalendpoints.models.services.EstadisticasCategorias;
+import com.reactive.functionalendpoints.storage.FotoStorage;
+import com.reactive.functionalendpoints.storage.GeneradorVariantes;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+
+/*Objetivo : Las rutas reales de RouterFunctionConfig armadas a mano (sin
+*            contexto de Spring) sobre ProductoServiceEnMemoria. Los valores
+*            son los defaults de application.properties.
+*            Lo usan RutasBenchmark, ValidacionBenchmark y el generador de carga (src/loadtest)
+*            cuando se corre sin Mongo. Hay que llamar a cerrar() al final */
+public class BackendEnMemoria {
+
+    private final ProductoServiceEnMemoria servicio;
+
+    private final LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+
+    private final GeneradorVariantes generadorVariantes;
+
+    private final ProductoHandler productoHandler;
+
+    private final RouterFunction<ServerResponse> rutas;
+
+    public BackendEnMemoria(int productos, boolean guardarAltas) throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        servicio = new ProductoServiceEnMemoria(DatosBenchmark.productos(productos), guardarAltas);
+        validator.afterPropertiesSet();
+
+        // Las fotos subidas quedan en un directorio temporal propio
+        FotoStorage fotoStorage = new FotoStorage(Files.createTempDirectory("fotos-memoria").toString(), null, Duration.ofHours(1));
+        generadorVariantes = new GeneradorVariantes(fotoStorage, servicio, "thumb:160", 1, 16);
+
+        productoHandler = new ProductoHandler(servicio, validator, 50, 500,
+                new ListadoStreaming(servicio, mapper, 256, 64, false),
+                new MultipartStreaming(fotoStorage, DataSize.ofMegabytes(10), 16),
+                generadorVariantes, new BusCambios(1024, Duration.ofSeconds(5)), Duration.ofSeconds(15),
+                500, 2, 1000);
+        FotoHandler fotoHandler = new FotoHandler(servicio, fotoStorage, generadorVariantes, Duration.ofHours(1));
+        CategoriaHandler categoriaHandler = new CategoriaHandler(servicio, new EstadisticasCategorias(null));
+
+        RegistroLentas registroLentas = new RegistroLentas(256);
+        FiltroLentas filtroLentas = new FiltroLentas(registroLentas, Duration.ofMillis(500), 1.0);
+
+        // Sin límites de admisión : el benchmark y el generador de carga mandan todo desde un solo cliente
+        FiltroAdmision filtroAdmision = new FiltroAdmision(false, "X-API-Key", "", 100000,
+                100, 200, 256, 20, 40, 64, 2, 5, 8);
+
+        rutas = new RouterFunctionConfig().routes(productoHandler, fotoHandler, categoriaHandler,
+                new DiagnosticoHandler(registroLentas, filtroLentas), filtroAdmision, filtroLentas);
+    }
+
+    public RouterFunction<ServerResponse> getRutas() {
+        return rutas;
+    }
+
+    public ProductoHandler getProductoHandler() {
+        return productoHandler;
+    }
+
+    public void cerrar() {
+        generadorVariantes.detener();
+        validator.close();
+    }
+}
@@ -0,0 +1,36 @@
+package com.reactive.functionalendpoints.benchmarks;
+
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.documents.Producto;
+
+import java.util.Date;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/*Objetivo : Datos fijos para los benchmarks (siempre los mismos, así las
+*            corridas de distintos commits son comparables) */
+final class DatosBenchmark {
+
+    static final Categoria ELECTRONICO = new Categoria("65a0000000000000000000e1", "Electrónico");
+
+    static final Categoria MUEBLES = new Categoria("65a0000000000000000000e2", "Muebles");
+
+    private static final Date FECHA = new Date(1704067200000L);
+
+    private DatosBenchmark() {
+    }
+
+    static Producto producto(int indice) {
+        return Producto.builder()
+                .id(String.format("65a00000%016x", indice))
+                .nombre("TV Sony Bravia OLED 4k Ultra HD " + indice)
+                .precio(100.0 + indice % 1000)
+                .createAt(FECHA)
+                .categoria(indice % 2 == 0 ? ELECTRONICO : MUEBLES)
+                .build();
+    }
+
+    static List<Producto> productos(int cantidad) {
+        return IntStream.range(0, cantidad).mapToObj(DatosBenchmark::producto).toList();
+    }
+}
@@ -0,0 +1,94 @@
+package com.reactive.functionalendpoints.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*Objetivo : Costo de serializar y deserializar Producto y Categoria con un
+*            ObjectMapper configurado como el de Spring Boot (fechas ISO, etc.).
+*            Un solo objeto y listas de 1, 100 y 10.000 productos */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JacksonBenchmark {
+
+    private static final ObjectMapper MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
+    private static final TypeReference<List<Producto>> LISTA = new TypeReference<>() {};
+
+    @State(Scope.Benchmark)
+    public static class Unico {
+
+        Producto producto;
+        byte[] productoJson;
+        Categoria categoria;
+        byte[] categoriaJson;
+
+        @Setup
+        public void preparar() throws IOException {
+            producto = DatosBenchmark.producto(1);
+            productoJson = MAPPER.writeValueAsBytes(producto);
+            categoria = DatosBenchmark.ELECTRONICO;
+            categoriaJson = MAPPER.writeValueAsBytes(categoria);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Listas {
+
+        @Param({"1", "100", "10000"})
+        int tamano;
+
+        List<Producto> productos;
+        byte[] json;
+
+        @Setup
+        public void preparar() throws IOException {
+            productos = DatosBenchmark.productos(tamano);
+            json = MAPPER.writeValueAsBytes(productos);
+        }
+    }
+
+    @Benchmark
+    public byte[] codificarProducto(Unico estado) throws IOException {
+        return MAPPER.writeValueAsBytes(estado.producto);
+    }
+
+    @Benchmark
+    public Producto decodificarProducto(Unico estado) throws IOException {
+        return MAPPER.readValue(estado.productoJson, Producto.class);
+    }
+
+    @Benchmark
+    public byte[] codificarCategoria(Unico estado) throws IOException {
+        return MAPPER.writeValueAsBytes(estado.categoria);
+    }
+
+    @Benchmark
+    public Categoria decodificarCategoria(Unico estado) throws IOException {
+        return MAPPER.readValue(estado.categoriaJson, Categoria.class);
+    }
+
+    @Benchmark
+    public byte[] codificarLista(Listas estado) throws IOException {
+        return MAPPER.writeValueAsBytes(estado.productos);
+    }
+
+    @Benchmark
+    public List<Producto> decodificarLista(Listas estado) throws IOException {
+        return MAPPER.readValue(estado.json, LISTA);
+    }
+}
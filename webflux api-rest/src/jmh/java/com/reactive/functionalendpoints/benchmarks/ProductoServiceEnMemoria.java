@@ -0,0 +1,175 @@
+package com.reactive.functionalendpoints.benchmarks;
+
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.PaginaProductos;
+import com.reactive.functionalendpoints.models.dto.ResultadoEliminacion;
+import com.reactive.functionalendpoints.models.dto.Sugerencia;
+import com.reactive.functionalendpoints.models.services.CamposProducto;
+import com.reactive.functionalendpoints.models.services.FiltroProductos;
+import com.reactive.functionalendpoints.models.services.ProductoService;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*Objetivo : ProductoService en memoria para medir solo el pipeline HTTP
+*            (router, handler, validación, codecs) sin Mongo de por medio.
+*            Las operaciones que ni los benchmarks ni el generador de carga usan
+*            no están soportadas */
+public class ProductoServiceEnMemoria implements ProductoService {
+
+    private final Map<String, Producto> productos = new ConcurrentHashMap<>();
+
+    private final Map<String, Categoria> categorias = Map.of(
+            DatosBenchmark.ELECTRONICO.getId(), DatosBenchmark.ELECTRONICO,
+            DatosBenchmark.MUEBLES.getId(), DatosBenchmark.MUEBLES);
+
+    // false : las altas reciben id pero no se guardan, así el mapa no crece durante la medición
+    private final boolean guardarAltas;
+
+    public ProductoServiceEnMemoria(List<Producto> iniciales, boolean guardarAltas) {
+        iniciales.forEach(producto -> productos.put(producto.getId(), producto));
+        this.guardarAltas = guardarAltas;
+    }
+
+    @Override
+    public Flux<Producto> findAll() {
+        return Flux.fromIterable(productos.values());
+    }
+
+    @Override
+    public Flux<Producto> findAll(CamposProducto campos) {
+        return findAll();
+    }
+
+    @Override
+    public Flux<Producto> findAllStream(int batchSize, FiltroProductos filtro, Sort orden, CamposProducto campos) {
+        return findAll();
+    }
+
+    @Override
+    public Mono<PaginaProductos> findPage(FiltroProductos filtro, String after, int limit, String campo,
+                                          Sort.Direction direccion, CamposProducto campos) {
+        return findAll().take(limit).collectList().map(lista -> new PaginaProductos(lista, null));
+    }
+
+    @Override
+    public Flux<Producto> findAllWithNameUpperCase() {
+        return findAll();
+    }
+
+    @Override
+    public Flux<Producto> findAllWithNameUpperCaseRepeat() {
+        return findAll();
+    }
+
+    @Override
+    public Mono<Producto> findById(String id) {
+        return Mono.justOrEmpty(productos.get(id)).map(producto -> producto.toBuilder().build());
+    }
+
+    @Override
+    public Mono<Producto> findById(String id, CamposProducto campos) {
+        return findById(id);
+    }
+
+    @Override
+    public Mono<Producto> save(Producto producto) {
+        boolean alta = producto.getId() == null;
+        if (alta)
+            producto.setId(new ObjectId().toHexString());
+        if (!alta || guardarAltas)
+            productos.put(producto.getId(), producto);
+        return Mono.just(producto);
+    }
+
+    @Override
+    public Mono<Void> delete(Producto producto) {
+        productos.remove(producto.getId());
+        return Mono.empty();
+    }
+
+    @Override
+    public Mono<Producto> registrarVariantes(String id, String foto, Map<String, String> variantes) {
+        // Como el findAndModify de Mongo : solo si la foto sigue siendo la misma, vacio si no
+        Producto actualizado = productos.computeIfPresent(id, (clave, producto) -> foto.equals(producto.getFoto())
+                ? producto.toBuilder().variantes(variantes).build()
+                : producto);
+        return Mono.justOrEmpty(actualizado)
+                .filter(producto -> foto.equals(producto.getFoto()))
+                .map(producto -> producto.toBuilder().build());
+    }
+
+    @Override
+    public Mono<ResultadoEliminacion> deleteById(String id) {
+        Producto eliminado = productos.remove(id);
+        return Mono.just(new ResultadoEliminacion(eliminado == null ? 0 : 1, eliminado == null ? null : eliminado.getFoto()));
+    }
+
+    @Override
+    public Mono<Long> deleteAllById(List<String> ids) {
+        return Mono.just(ids.stream().map(productos::remove).filter(Objects::nonNull).count());
+    }
+
+    @Override
+    public Mono<Producto> patch(String id, Producto cambios) {
+        return Mono.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertarLote(List<Producto> lote) {
+        lote.forEach(this::save);
+        return Mono.just(Map.of());
+    }
+
+    @Override
+    public Flux<Producto> buscar(String q, int limite) {
+        return Flux.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public List<Sugerencia> autocompletar(String q, int limite) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Map<String, Object> estadisticasCache() {
+        return Map.of();
+    }
+
+    @Override
+    public Categoria categoriaCanonica(Categoria categoria) {
+        return categoria == null || categoria.getId() == null ? null : categorias.get(categoria.getId());
+    }
+
+    @Override
+    public Flux<Categoria> findAllCategoria() {
+        return Flux.fromIterable(categorias.values());
+    }
+
+    @Override
+    public Mono<Categoria> findCategoriaById(String id) {
+        return Mono.justOrEmpty(categorias.get(id));
+    }
+
+    @Override
+    public Mono<Categoria> save(Categoria categoria) {
+        return Mono.error(new UnsupportedOperationException());
+    }
+
+    @Override
+    public Mono<Producto> findByNombre(String nombre) {
+        return findAll().filter(producto -> producto.getNombre().equals(nombre)).next();
+    }
+
+    @Override
+    public Mono<Categoria> findCategoriaByNombre(String nombre) {
+        return findAllCategoria().filter(categoria -> categoria.getNombre().equals(nombre)).next();
+    }
+}
@@ -0,0 +1,94 @@
+package com.reactive.functionalendpoints.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/*Objetivo : Peticiones completas a través de RouterFunctionConfig.routes :
+*            ruteo, handler, validación y codecs de WebFlux, con un
+*            ProductoService en memoria en lugar de Mongo. Sin red : el
+*            HttpHandler se invoca con request/response simulados */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RutasBenchmark {
+
+    @Param({"100"})
+    int productos;
+
+    private BackendEnMemoria backend;
+
+    private HttpHandler httpHandler;
+
+    private String idDetalle;
+
+    private String cuerpoCrear;
+
+    private String cuerpoInvalido;
+
+    @Setup
+    public void preparar() throws IOException {
+        // Las altas no se guardan : el mapa no crece durante la medición
+        backend = new BackendEnMemoria(productos, false);
+        httpHandler = RouterFunctions.toHttpHandler(backend.getRutas(), HandlerStrategies.withDefaults());
+
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        idDetalle = DatosBenchmark.producto(0).getId();
+        Producto nuevo = DatosBenchmark.producto(1);
+        nuevo.setId(null);
+        cuerpoCrear = mapper.writeValueAsString(nuevo);
+        cuerpoInvalido = mapper.writeValueAsString(Producto.builder().nombre("").categoria(DatosBenchmark.MUEBLES).build());
+    }
+
+    @TearDown
+    public void cerrar() {
+        backend.cerrar();
+    }
+
+    @Benchmark
+    public String listar() {
+        return ejecutar(MockServerHttpRequest.get("/api/v2/products").accept(MediaType.APPLICATION_JSON).build());
+    }
+
+    @Benchmark
+    public String verDetalle() {
+        return ejecutar(MockServerHttpRequest.get("/api/v2/products/{id}", idDetalle)
+                .accept(MediaType.APPLICATION_JSON).build());
+    }
+
+    @Benchmark
+    public String crear() {
+        return ejecutar(MockServerHttpRequest.post("/api/v2/products")
+                .contentType(MediaType.APPLICATION_JSON).body(cuerpoCrear));
+    }
+
+    @Benchmark
+    public String crearInvalido() {
+        return ejecutar(MockServerHttpRequest.post("/api/v2/products")
+                .contentType(MediaType.APPLICATION_JSON).body(cuerpoInvalido));
+    }
+
+    private String ejecutar(MockServerHttpRequest request) {
+        MockServerHttpResponse response = new MockServerHttpResponse();
+        httpHandler.handle(request, response).block();
+        return response.getBodyAsString().block();
+    }
+}
@@ -0,0 +1,61 @@
+package com.reactive.functionalendpoints.benchmarks;
+
+import com.reactive.functionalendpoints.handler.ProductoHandler;
+import com.reactive.functionalendpoints.handler.ValidacionProducto;
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*Objetivo : Validación de 'crear' : se llama a ProductoHandler.validar (vía
+*            ValidacionProducto) del handler armado por BackendEnMemoria
+*            (Validator de Spring, BeanPropertyBindingResult, mensajes por campo
+*            y la categoria canónica del registro). Con un producto válido y con
+*            uno que falla en varios campos */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidacionBenchmark {
+
+    private BackendEnMemoria backend;
+
+    private ProductoHandler handler;
+
+    private Producto valido;
+
+    private Producto invalido;
+
+    @Setup
+    public void preparar() throws IOException {
+        backend = new BackendEnMemoria(2, false);
+        handler = backend.getProductoHandler();
+        valido = DatosBenchmark.producto(1);
+        // Sin nombre, sin precio y con una categoria sin id
+        invalido = Producto.builder().nombre("").categoria(new Categoria("Muebles")).build();
+    }
+
+    @TearDown
+    public void cerrar() {
+        backend.cerrar();
+    }
+
+    @Benchmark
+    public List<String> validarProductoValido() {
+        return ValidacionProducto.validar(handler, valido);
+    }
+
+    @Benchmark
+    public List<String> validarProductoInvalido() {
+        return ValidacionProducto.validar(handler, invalido);
+    }
+}
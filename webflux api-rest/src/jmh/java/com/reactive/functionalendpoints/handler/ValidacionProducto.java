@@ -0,0 +1,18 @@
+package com.reactive.functionalendpoints.handler;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+
+import java.util.List;
+
+/*Objetivo : Acceso de los benchmarks a ProductoHandler.validar, que es del
+*            paquete. Así ValidacionBenchmark mide exactamente la validación
+*            de 'crear' sin que el método sea público en el handler */
+public final class ValidacionProducto {
+
+    private ValidacionProducto() {
+    }
+
+    public static List<String> validar(ProductoHandler handler, Producto producto) {
+        return handler.validar(producto);
+    }
+}
@@ -0,0 +1,217 @@
+package com.reactive.functionalendpoints.carga;
+
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*Objetivo : Las peticiones de cada operación con WebClient.
+*            - Lecturas (listar, verDetalle) sobre los productos que ya existían
+*            - Escrituras (editar, eliminar, upload) solo sobre productos que creó
+*              la misma corrida, así no se modifican los datos de la base
+*            Cada ejecución emite true si se hizo, vacio si no había datos para
+*            hacerla (se cuenta como omitida) y error si la respuesta no es 2xx */
+class ClienteCarga {
+
+    private final WebClient client;
+
+    private final ConnectionProvider conexiones;
+
+    private final int limiteListado;
+
+    private final Duration timeout;
+
+    // PNG chico pero válido, así el servidor también genera sus variantes
+    private final byte[] foto;
+
+    private final AtomicLong secuencia = new AtomicLong();
+
+    private final ConcurrentLinkedQueue<Producto> creados = new ConcurrentLinkedQueue<>();
+
+    private List<Categoria> categorias = List.of();
+
+    private List<String> existentes = List.of();
+
+    ClienteCarga(String url, String apiKey, int maximoConexiones, int limiteListado, Duration timeout) throws IOException {
+        // Sin límite de espera por conexión : si el pool se llena la demora cuenta como latencia
+        this.conexiones = ConnectionProvider.builder("carga")
+                .maxConnections(maximoConexiones)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(timeout)
+                .build();
+        this.client = WebClient.builder()
+                .baseUrl(url)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(conexiones)))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(-1))
+                // Clave conocida por api-rest : cubeta propia en lugar de la de la IP
+                .defaultHeaders(headers -> {
+                    if (!apiKey.isEmpty())
+                        headers.set("X-API-Key", apiKey);
+                })
+                .build();
+        this.limiteListado = limiteListado;
+        this.timeout = timeout;
+        this.foto = png();
+    }
+
+    // Categorias para crear productos válidos e ids existentes para las lecturas
+    Mono<Void> preparar() {
+        Mono<List<Categoria>> categoriasMono = client.get().uri("/api/v2/categories")
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(Categoria.class)
+                .collectList();
+        Mono<List<String>> idsMono = client.get()
+                .uri(uri -> uri.path("/api/v2/products").queryParam("fields", "id").queryParam("limit", 500).build())
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .bodyToFlux(Producto.class)
+                .map(Producto::getId)
+                .collectList();
+        return Mono.zip(categoriasMono, idsMono)
+                .doOnNext(datos -> {
+                    if (datos.getT1().isEmpty())
+                        throw new IllegalStateException("El backend no tiene categorias, no se pueden crear productos");
+                    categorias = datos.getT1();
+                    existentes = datos.getT2();
+                })
+                .then();
+    }
+
+    int getExistentes() {
+        return existentes.size();
+    }
+
+    Mono<Boolean> ejecutar(Operacion operacion) {
+        Mono<Boolean> peticion = switch (operacion) {
+            case LISTAR -> listar();
+            case VER_DETALLE -> verDetalle();
+            case CREAR -> crear();
+            case EDITAR -> editar();
+            case ELIMINAR -> eliminar();
+            case UPLOAD -> upload();
+        };
+        return peticion.timeout(timeout);
+    }
+
+    private Mono<Boolean> listar() {
+        return client.get()
+                .uri(uri -> limiteListado > 0
+                        ? uri.path("/api/v2/products").queryParam("limit", limiteListado).build()
+                        : uri.path("/api/v2/products").build())
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                // El cuerpo se lee completo aunque no se use
+                .toBodilessEntity()
+                .thenReturn(true);
+    }
+
+    private Mono<Boolean> verDetalle() {
+        List<String> ids = existentes;
+        String id;
+        if (!ids.isEmpty()) {
+            id = ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        } else {
+            Producto creado = creados.peek();
+            if (creado == null)
+                return Mono.empty();
+            id = creado.getId();
+        }
+        return client.get().uri("/api/v2/products/{id}", id)
+                .accept(MediaType.APPLICATION_JSON)
+                .retrieve()
+                .toBodilessEntity()
+                .thenReturn(true);
+    }
+
+    private Mono<Boolean> crear() {
+        Categoria categoria = categorias.get(ThreadLocalRandom.current().nextInt(categorias.size()));
+        Producto producto = Producto.builder()
+                .nombre("Carga " + secuencia.incrementAndGet())
+                .precio(ThreadLocalRandom.current().nextInt(10, 5000) * 1.0)
+                .categoria(categoria)
+                .build();
+        return client.post().uri("/api/v2/products")
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(producto)
+                .retrieve()
+                .bodyToMono(Producto.class)
+                .doOnNext(creados::offer)
+                .thenReturn(true);
+    }
+
+    private Mono<Boolean> editar() {
+        // Se saca de la cola mientras se usa : nadie más lo edita o elimina al mismo tiempo
+        Producto producto = creados.poll();
+        if (producto == null)
+            return Mono.empty();
+        producto.setPrecio(producto.getPrecio() + 1);
+        return client.put().uri("/api/v2/products/{id}", producto.getId())
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(producto))
+                .retrieve()
+                .toBodilessEntity()
+                .thenReturn(true)
+                .doFinally(senal -> creados.offer(producto));
+    }
+
+    private Mono<Boolean> eliminar() {
+        Producto producto = creados.poll();
+        if (producto == null)
+            return Mono.empty();
+        return client.delete().uri("/api/v2/products/{id}", producto.getId())
+                .retrieve()
+                .toBodilessEntity()
+                .thenReturn(true);
+    }
+
+    private Mono<Boolean> upload() {
+        Producto producto = creados.poll();
+        if (producto == null)
+            return Mono.empty();
+        MultipartBodyBuilder parts = new MultipartBodyBuilder();
+        parts.part("file", new ByteArrayResource(foto))
+                .filename("carga.png")
+                .contentType(MediaType.IMAGE_PNG);
+        return client.post().uri("/api/v2/products/upload/{id}", producto.getId())
+                .contentType(MediaType.MULTIPART_FORM_DATA)
+                .body(BodyInserters.fromMultipartData(parts.build()))
+                .retrieve()
+                .toBodilessEntity()
+                .thenReturn(true)
+                .doFinally(senal -> creados.offer(producto));
+    }
+
+    void cerrar() {
+        conexiones.dispose();
+    }
+
+    private static byte[] png() throws IOException {
+        BufferedImage imagen = new BufferedImage(320, 240, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < imagen.getWidth(); x++)
+            for (int y = 0; y < imagen.getHeight(); y++)
+                imagen.setRGB(x, y, (x * 255 / imagen.getWidth()) << 16 | (y * 255 / imagen.getHeight()) << 8);
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        ImageIO.write(imagen, "png", salida);
+        return salida.toByteArray();
+    }
+}
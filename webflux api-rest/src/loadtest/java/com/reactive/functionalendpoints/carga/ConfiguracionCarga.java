@@ -0,0 +1,119 @@
+package com.reactive.functionalendpoints.carga;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/*Objetivo : Parámetros del generador de carga, como --clave=valor :
+*            - backend : 'memoria' levanta las rutas reales sobre un servicio en
+*              memoria en un puerto local; 'remoto' usa 'url' (api-rest corriendo
+*              contra un mongod local)
+*            - api-key : se envía en X-API-Key. Tiene que estar en
+*              'configuration.limites.claves' de api-rest, si no toda la corrida
+*              comparte la cubeta de una sola IP y se mide el limitador (429/503).
+*              Aun con su propia cubeta rige la tasa de la clave : para medir por
+*              encima de ella api-rest se levanta con configuration.limites.enabled=false
+*            - modelo : 'abierto' (llegadas a tasa fija, 'tasa' peticiones por
+*              segundo sin importar cuánto tarde el servidor) o 'cerrado'
+*              ('usuarios' concurrentes, cada uno espera su respuesta; con 'ritmo'
+*              cada usuario intenta una petición por intervalo)
+*            - duracion y calentamiento (lo que llega en el calentamiento no se mide) */
+class ConfiguracionCarga {
+
+    private static final Set<String> CLAVES = Set.of("backend", "url", "api-key", "productos", "modelo", "tasa", "usuarios",
+            "ritmo", "duracion", "calentamiento", "mezcla", "limite-listado", "conexiones", "max-en-vuelo",
+            "timeout", "histogramas");
+
+    final String backend;
+
+    final String url;
+
+    // Vacía = sin header (el backend en memoria no aplica límites)
+    final String apiKey;
+
+    // Productos iniciales del backend en memoria
+    final int productos;
+
+    final boolean abierto;
+
+    final double tasa;
+
+    final int usuarios;
+
+    final Duration ritmo;
+
+    final Duration duracion;
+
+    final Duration calentamiento;
+
+    final Mezcla mezcla;
+
+    // Se pide ?limit=N al listar, 0 = listado completo
+    final int limiteListado;
+
+    final int conexiones;
+
+    // Modelo abierto : peticiones simultaneas como máximo antes de descartar llegadas
+    final int maximoEnVuelo;
+
+    final Duration timeout;
+
+    // Directorio donde dejar la distribución completa de cada ruta (.hgrm), null = no se escribe
+    final String histogramas;
+
+    private ConfiguracionCarga(Map<String, String> valores) {
+        backend = valores.getOrDefault("backend", "memoria");
+        if (!backend.equals("memoria") && !backend.equals("remoto"))
+            throw new IllegalArgumentException("backend debe ser 'memoria' o 'remoto'");
+        url = valores.getOrDefault("url", "http://localhost:8080");
+        apiKey = valores.getOrDefault("api-key", "generador-carga");
+        productos = Integer.parseInt(valores.getOrDefault("productos", "1000"));
+
+        String modelo = valores.getOrDefault("modelo", "abierto");
+        if (!modelo.equals("abierto") && !modelo.equals("cerrado"))
+            throw new IllegalArgumentException("modelo debe ser 'abierto' o 'cerrado'");
+        abierto = modelo.equals("abierto");
+        tasa = Double.parseDouble(valores.getOrDefault("tasa", "200"));
+        usuarios = Integer.parseInt(valores.getOrDefault("usuarios", "32"));
+        ritmo = Duration.parse(valores.getOrDefault("ritmo", "PT0S"));
+        duracion = Duration.parse(valores.getOrDefault("duracion", "PT60S"));
+        calentamiento = Duration.parse(valores.getOrDefault("calentamiento", "PT10S"));
+        mezcla = Mezcla.parsear(valores.getOrDefault("mezcla", "listar:40,verDetalle:40,crear:8,editar:6,eliminar:4,upload:2"));
+        limiteListado = Integer.parseInt(valores.getOrDefault("limite-listado", "50"));
+        conexiones = Integer.parseInt(valores.getOrDefault("conexiones", "256"));
+        maximoEnVuelo = Integer.parseInt(valores.getOrDefault("max-en-vuelo", "10000"));
+        timeout = Duration.parse(valores.getOrDefault("timeout", "PT10S"));
+        histogramas = valores.get("histogramas");
+
+        if (abierto && tasa <= 0)
+            throw new IllegalArgumentException("tasa debe ser mayor que 0");
+        if (!abierto && usuarios <= 0)
+            throw new IllegalArgumentException("usuarios debe ser mayor que 0");
+        if (duracion.isNegative() || duracion.isZero())
+            throw new IllegalArgumentException("duracion debe ser mayor que 0");
+    }
+
+    static ConfiguracionCarga parsear(String[] args) {
+        Map<String, String> valores = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (!arg.startsWith("--") || igual < 0)
+                throw new IllegalArgumentException("Argumento inválido : " + arg + " (se espera --clave=valor)");
+            String clave = arg.substring(2, igual);
+            if (!CLAVES.contains(clave))
+                throw new IllegalArgumentException("Parámetro desconocido : " + clave + ", disponibles " + CLAVES);
+            valores.put(clave, arg.substring(igual + 1));
+        }
+        return new ConfiguracionCarga(valores);
+    }
+
+    String describir() {
+        String carga = abierto
+                ? String.format("modelo abierto, %.0f req/s", tasa)
+                : String.format("modelo cerrado, %d usuarios%s", usuarios,
+                        ritmo.isZero() ? " sin ritmo" : ", ritmo " + ritmo.toMillis() + " ms");
+        return String.format("%s, %d s medidos (calentamiento %d s), mezcla %s",
+                carga, duracion.toSeconds(), calentamiento.toSeconds(), mezcla.getPesos());
+    }
+}
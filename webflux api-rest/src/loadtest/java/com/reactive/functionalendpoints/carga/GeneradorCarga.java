@@ -0,0 +1,173 @@
+package com.reactive.functionalendpoints.carga;
+
+import com.reactive.functionalendpoints.benchmarks.BackendEnMemoria;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/*Objetivo : Generador de carga de punta a punta para medir throughput y
+*            percentiles de las rutas de productos antes de cada release.
+*            'gradlew cargar --args="--modelo=abierto --tasa=500 --duracion=PT60S"'
+*
+*            Sin omisión coordinada : la latencia se mide desde el instante en que
+*            la petición debía salir según el plan (tasa fija en el modelo abierto,
+*            'ritmo' en el cerrado), no desde que salió. Si el servidor (o el propio
+*            generador) se traba, las peticiones que debían salir durante la traba
+*            cargan con esa espera en lugar de desaparecer de la medición.
+*            El modelo cerrado sin ritmo mide el tiempo de respuesta que ve cada
+*            usuario : sirve para throughput máximo, no para comparar percentiles */
+public final class GeneradorCarga {
+
+    private final ConfiguracionCarga configuracion;
+
+    private final ClienteCarga cliente;
+
+    private final RegistroLatencias registro = new RegistroLatencias();
+
+    // Instantes (System.nanoTime) de inicio, fin del calentamiento y fin de la corrida
+    private long inicio;
+
+    private long inicioMedicion;
+
+    private long fin;
+
+    private GeneradorCarga(ConfiguracionCarga configuracion, ClienteCarga cliente) {
+        this.configuracion = configuracion;
+        this.cliente = cliente;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfiguracionCarga configuracion = ConfiguracionCarga.parsear(args);
+
+        BackendEnMemoria backend = null;
+        DisposableServer servidor = null;
+        String url = configuracion.url;
+        if (configuracion.backend.equals("memoria")) {
+            // Las rutas reales sobre un servicio en memoria, en un puerto libre de localhost
+            backend = new BackendEnMemoria(configuracion.productos, true);
+            servidor = HttpServer.create().host("localhost").port(0)
+                    .handle(new ReactorHttpHandlerAdapter(
+                            RouterFunctions.toHttpHandler(backend.getRutas(), HandlerStrategies.withDefaults())))
+                    .bindNow();
+            url = "http://localhost:" + servidor.port();
+        }
+
+        ClienteCarga cliente = new ClienteCarga(url, configuracion.apiKey, configuracion.conexiones,
+                configuracion.limiteListado, configuracion.timeout);
+        try {
+            cliente.preparar().block(Duration.ofMinutes(1));
+            System.out.printf("Carga contra %s (%s, %d productos existentes)%n%s%n%n", url, configuracion.backend,
+                    cliente.getExistentes(), configuracion.describir());
+
+            GeneradorCarga generador = new GeneradorCarga(configuracion, cliente);
+            generador.correr();
+            generador.registro.informe(System.out, configuracion.duracion, configuracion.histogramas);
+        } finally {
+            cliente.cerrar();
+            if (servidor != null)
+                servidor.disposeNow();
+            if (backend != null)
+                backend.cerrar();
+        }
+    }
+
+    private void correr() throws InterruptedException {
+        inicio = System.nanoTime();
+        inicioMedicion = inicio + configuracion.calentamiento.toNanos();
+        fin = inicioMedicion + configuracion.duracion.toNanos();
+        if (configuracion.abierto)
+            abierto();
+        else
+            cerrado();
+    }
+
+    /* Modelo abierto : la petición i debe salir en inicio + i * periodo, sin
+    * esperar a las anteriores. Un solo hilo despacha y las respuestas llegan
+    * en los hilos de Reactor Netty */
+    private void abierto() throws InterruptedException {
+        long periodo = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / configuracion.tasa));
+        Semaphore enVuelo = new Semaphore(configuracion.maximoEnVuelo);
+
+        for (long i = 0; ; i++) {
+            long previsto = inicio + i * periodo;
+            if (previsto >= fin)
+                break;
+            esperarHasta(previsto);
+
+            Operacion operacion = configuracion.mezcla.elegir();
+            if (!enVuelo.tryAcquire()) {
+                // Demasiadas sin responder : se cuenta en lugar de frenar el plan de llegadas
+                if (previsto >= inicioMedicion)
+                    registro.descartada(operacion);
+                continue;
+            }
+            medir(operacion, previsto).doFinally(senal -> enVuelo.release()).subscribe();
+        }
+
+        // Se espera a las que siguen en vuelo (a lo sumo el timeout de cada petición)
+        long limite = configuracion.timeout.toNanos() + TimeUnit.SECONDS.toNanos(5);
+        if (!enVuelo.tryAcquire(configuracion.maximoEnVuelo, limite, TimeUnit.NANOSECONDS))
+            System.out.println("AVISO : quedaron peticiones sin terminar al cerrar la corrida");
+    }
+
+    /* Modelo cerrado : 'usuarios' bucles concurrentes, cada uno manda la siguiente
+    * petición cuando recibe la respuesta anterior. Con ritmo, el usuario k debe
+    * mandar su petición j en inicio + j * ritmo y se mide desde ahí */
+    private void cerrado() {
+        long ritmo = configuracion.ritmo.toNanos();
+        Flux.range(0, configuracion.usuarios)
+                .flatMap(usuario -> usuario(ritmo), configuracion.usuarios)
+                .then()
+                .block();
+    }
+
+    private Mono<Void> usuario(long ritmo) {
+        long[] previsto = {inicio};
+        return Mono.defer(() -> {
+                    long espera = previsto[0] - System.nanoTime();
+                    Mono<Long> turno = ritmo > 0 && espera > 0 ? Mono.delay(Duration.ofNanos(espera)) : Mono.just(0L);
+                    return turno.then(Mono.defer(() -> {
+                        long desde = ritmo > 0 ? previsto[0] : System.nanoTime();
+                        return medir(configuracion.mezcla.elegir(), desde);
+                    }));
+                })
+                .doOnTerminate(() -> previsto[0] = ritmo > 0 ? previsto[0] + ritmo : System.nanoTime())
+                .repeat(() -> (ritmo > 0 ? previsto[0] : System.nanoTime()) < fin)
+                .then();
+    }
+
+    // Ejecuta la operación y registra la latencia desde 'previsto' (solo fuera del calentamiento)
+    private Mono<Void> medir(Operacion operacion, long previsto) {
+        boolean medible = previsto >= inicioMedicion;
+        return cliente.ejecutar(operacion)
+                .doOnNext(hecho -> {
+                    if (medible)
+                        registro.exito(operacion, System.nanoTime() - previsto);
+                })
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    if (medible)
+                        registro.omitida(operacion);
+                }))
+                .onErrorResume(error -> {
+                    if (medible)
+                        registro.error(operacion);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static void esperarHasta(long instante) {
+        long espera;
+        while ((espera = instante - System.nanoTime()) > 0)
+            LockSupport.parkNanos(espera);
+    }
+}
@@ -0,0 +1,58 @@
+package com.reactive.functionalendpoints.carga;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*Objetivo : Proporción de cada operación en la carga, ej.
+*            "listar:40,verDetalle:40,crear:8,editar:6,eliminar:4,upload:2".
+*            Los pesos son relativos, no hace falta que sumen 100 */
+class Mezcla {
+
+    private final Operacion[] operaciones;
+
+    // Pesos acumulados, se elige con una búsqueda sobre un número al azar
+    private final int[] acumulados;
+
+    private final Map<Operacion, Integer> pesos;
+
+    private Mezcla(Map<Operacion, Integer> pesos) {
+        this.pesos = pesos;
+        this.operaciones = pesos.keySet().toArray(new Operacion[0]);
+        this.acumulados = new int[operaciones.length];
+        int total = 0;
+        for (int i = 0; i < operaciones.length; i++) {
+            total += pesos.get(operaciones[i]);
+            acumulados[i] = total;
+        }
+    }
+
+    static Mezcla parsear(String texto) {
+        Map<Operacion, Integer> pesos = new EnumMap<>(Operacion.class);
+        for (String parte : texto.split(",")) {
+            String[] nombreYPeso = parte.trim().split(":");
+            if (nombreYPeso.length != 2)
+                throw new IllegalArgumentException("Formato de mezcla inválido : " + parte + " (se espera operacion:peso)");
+            int peso = Integer.parseInt(nombreYPeso[1].trim());
+            if (peso < 0)
+                throw new IllegalArgumentException("El peso no puede ser negativo : " + parte);
+            if (peso > 0)
+                pesos.merge(Operacion.porNombre(nombreYPeso[0].trim()), peso, Integer::sum);
+        }
+        if (pesos.isEmpty())
+            throw new IllegalArgumentException("La mezcla no tiene operaciones");
+        return new Mezcla(pesos);
+    }
+
+    Operacion elegir() {
+        int valor = ThreadLocalRandom.current().nextInt(acumulados[acumulados.length - 1]);
+        for (int i = 0; i < acumulados.length; i++)
+            if (valor < acumulados[i])
+                return operaciones[i];
+        return operaciones[operaciones.length - 1];
+    }
+
+    Map<Operacion, Integer> getPesos() {
+        return pesos;
+    }
+}
@@ -0,0 +1,37 @@
+package com.reactive.functionalendpoints.carga;
+
+/*Objetivo : Rutas que ejercita el generador de carga. 'nombre' es el que
+*            se usa en --mezcla y en el informe */
+enum Operacion {
+
+    LISTAR("listar", "GET /api/v2/products"),
+    VER_DETALLE("verDetalle", "GET /api/v2/products/{id}"),
+    CREAR("crear", "POST /api/v2/products"),
+    EDITAR("editar", "PUT /api/v2/products/{id}"),
+    ELIMINAR("eliminar", "DELETE /api/v2/products/{id}"),
+    UPLOAD("upload", "POST /api/v2/products/upload/{id}");
+
+    private final String nombre;
+
+    private final String ruta;
+
+    Operacion(String nombre, String ruta) {
+        this.nombre = nombre;
+        this.ruta = ruta;
+    }
+
+    String getNombre() {
+        return nombre;
+    }
+
+    String getRuta() {
+        return ruta;
+    }
+
+    static Operacion porNombre(String nombre) {
+        for (Operacion operacion : values())
+            if (operacion.nombre.equalsIgnoreCase(nombre))
+                return operacion;
+        throw new IllegalArgumentException("Operación desconocida : " + nombre);
+    }
+}
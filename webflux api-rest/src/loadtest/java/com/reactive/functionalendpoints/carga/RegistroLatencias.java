@@ -0,0 +1,113 @@
+package com.reactive.functionalendpoints.carga;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/*Objetivo : Latencias por operación en histogramas HdrHistogram (3 cifras
+*            significativas, en nanosegundos, de 1 µs a minutos sin perder
+*            resolución en la cola).
+*            - Recorder permite registrar desde muchos hilos sin bloquear
+*            - Solo las respuestas 2xx entran al histograma; errores (incluye
+*              timeouts) y llegadas descartadas se cuentan aparte
+*            Quién mide decide desde cuándo : el generador registra desde el
+*            instante en que la petición DEBÍA salir, no desde que salió */
+class RegistroLatencias {
+
+    private static final double NANOS_POR_MILI = 1_000_000.0;
+
+    private final Map<Operacion, Recorder> recorders = new EnumMap<>(Operacion.class);
+
+    private final Map<Operacion, LongAdder> errores = new EnumMap<>(Operacion.class);
+
+    private final Map<Operacion, LongAdder> descartadas = new EnumMap<>(Operacion.class);
+
+    // Operaciones que no se pudieron hacer por falta de datos (ej. eliminar sin productos creados)
+    private final Map<Operacion, LongAdder> omitidas = new EnumMap<>(Operacion.class);
+
+    RegistroLatencias() {
+        for (Operacion operacion : Operacion.values()) {
+            recorders.put(operacion, new Recorder(3));
+            errores.put(operacion, new LongAdder());
+            descartadas.put(operacion, new LongAdder());
+            omitidas.put(operacion, new LongAdder());
+        }
+    }
+
+    void exito(Operacion operacion, long nanos) {
+        recorders.get(operacion).recordValue(Math.max(nanos, 1));
+    }
+
+    void error(Operacion operacion) {
+        errores.get(operacion).increment();
+    }
+
+    void descartada(Operacion operacion) {
+        descartadas.get(operacion).increment();
+    }
+
+    void omitida(Operacion operacion) {
+        omitidas.get(operacion).increment();
+    }
+
+    /* Imprime p50/p90/p99/p999, máximo y throughput por operación. Consume lo
+    * registrado (Recorder entrega el intervalo desde la última lectura) */
+    void informe(PrintStream salida, Duration medido, String directorioHistogramas) throws IOException {
+        double segundos = medido.toNanos() / 1e9;
+        Histogram total = new Histogram(3);
+        long erroresTotal = 0, descartadasTotal = 0, omitidasTotal = 0;
+
+        salida.printf("%-36s %9s %8s %10s %8s %9s %9s %9s %9s %9s %9s%n", "ruta", "ok", "errores", "descartad.",
+                "omitidas", "req/s", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms");
+        for (Operacion operacion : Operacion.values()) {
+            Histogram histograma = recorders.get(operacion).getIntervalHistogram();
+            long conError = errores.get(operacion).sum();
+            long sinEnviar = descartadas.get(operacion).sum();
+            long sinDatos = omitidas.get(operacion).sum();
+            if (histograma.getTotalCount() == 0 && conError == 0 && sinEnviar == 0 && sinDatos == 0)
+                continue;
+
+            linea(salida, operacion.getRuta(), histograma, conError, sinEnviar, sinDatos, segundos);
+            total.add(histograma);
+            erroresTotal += conError;
+            descartadasTotal += sinEnviar;
+            omitidasTotal += sinDatos;
+            if (directorioHistogramas != null)
+                guardar(directorioHistogramas, operacion.getNombre(), histograma);
+        }
+        linea(salida, "total", total, erroresTotal, descartadasTotal, omitidasTotal, segundos);
+
+        if (descartadasTotal > 0)
+            salida.printf("%nAVISO : %d llegadas descartadas por superar max-en-vuelo. El servidor no sostiene la tasa"
+                    + " pedida : los percentiles no incluyen esas peticiones y subestiman la latencia real%n", descartadasTotal);
+    }
+
+    private static void linea(PrintStream salida, String ruta, Histogram histograma, long errores, long descartadas,
+                              long omitidas, double segundos) {
+        salida.printf("%-36s %9d %8d %10d %8d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", ruta,
+                histograma.getTotalCount(), errores, descartadas, omitidas,
+                histograma.getTotalCount() / segundos,
+                milis(histograma, 50), milis(histograma, 90), milis(histograma, 99), milis(histograma, 99.9),
+                histograma.getMaxValue() / NANOS_POR_MILI);
+    }
+
+    private static double milis(Histogram histograma, double percentil) {
+        return histograma.getValueAtPercentile(percentil) / NANOS_POR_MILI;
+    }
+
+    // Distribución completa en el formato .hgrm (se puede graficar con HdrHistogram Plotter)
+    private static void guardar(String directorio, String nombre, Histogram histograma) throws IOException {
+        Files.createDirectories(Path.of(directorio));
+        try (PrintStream archivo = new PrintStream(Path.of(directorio, nombre + ".hgrm").toFile())) {
+            histograma.outputPercentileDistribution(archivo, NANOS_POR_MILI);
+        }
+    }
+}
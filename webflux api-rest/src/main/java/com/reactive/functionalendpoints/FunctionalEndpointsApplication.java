@@ -1,30 +1,58 @@
 package com.reactive.functionalendpoints;
-import com.reactive.functionalendpoints.models.documents.Categoria;
-import com.reactive.functionalendpoints.models.documents.Producto;
-import com.reactive.functionalendpoints.models.services.ProductoService;
+import com.reactive.functionalendpoints.indices.GestorIndices;
+import com.reactive.functionalendpoints.models.services.EstadisticasCategorias;
+import com.reactive.functionalendpoints.models.services.IndiceNombres;
+import com.reactive.functionalendpoints.models.services.RegistroCategorias;
+import com.reactive.functionalendpoints.seed.SembradorDatos;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
-import reactor.core.publisher.Flux;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import reactor.core.publisher.Mono;
 
-import java.util.Date;
+import java.time.Duration;
 
 @SpringBootApplication
+// Tareas en segundo plano (recolector de fotos)
+@EnableScheduling
 public class FunctionalEndpointsApplication implements CommandLineRunner {
 
-	private final ProductoService productoService;
+	private final SembradorDatos sembradorDatos;
 
+	private final GestorIndices gestorIndices;
 
-	private final ReactiveMongoTemplate mongoTemplate;
+	private final EstadisticasCategorias estadisticasCategorias;
+
+	private final IndiceNombres indiceNombres;
+
+	private final RegistroCategorias registroCategorias;
+
+	private final boolean siembraHabilitada;
+
+	// Si es true la aplicación no queda lista (ni acepta tráfico) hasta terminar la siembra
+	private final boolean esperarSiembra;
+
+	private final Duration limiteSiembra;
 
 	private static final Logger log = LoggerFactory.getLogger(FunctionalEndpointsApplication.class);
 
-    public FunctionalEndpointsApplication(ProductoService productoService, ReactiveMongoTemplate mongoTemplate) {
-        this.productoService = productoService;
-        this.mongoTemplate = mongoTemplate;
+    public FunctionalEndpointsApplication(SembradorDatos sembradorDatos, GestorIndices gestorIndices,
+										  EstadisticasCategorias estadisticasCategorias, IndiceNombres indiceNombres,
+										  RegistroCategorias registroCategorias,
+										  @Value("${configuration.seed.enabled:true}") boolean siembraHabilitada,
+										  @Value("${configuration.seed.await:true}") boolean esperarSiembra,
+										  @Value("${configuration.seed.timeout:PT10M}") Duration limiteSiembra) {
+        this.sembradorDatos = sembradorDatos;
+        this.gestorIndices = gestorIndices;
+        this.estadisticasCategorias = estadisticasCategorias;
+        this.indiceNombres = indiceNombres;
+        this.registroCategorias = registroCategorias;
+        this.siembraHabilitada = siembraHabilitada;
+        this.esperarSiembra = esperarSiembra;
+        this.limiteSiembra = limiteSiembra;
     }
 
     public static void main(String[] args) {
@@ -32,46 +60,36 @@ public class FunctionalEndpointsApplication implements CommandLineRunner {
 	}
 
 
-
-
-
 	@Override
 	public void run(String... args) throws Exception {
 
-		mongoTemplate.dropCollection("productos").subscribe(); // Obligatoria las suscripción !!
-		mongoTemplate.dropCollection("categorias").subscribe();
-
-		Categoria electronico =  Categoria.builder().nombre("Electrónico").build();
-		Categoria deporte =  Categoria.builder().nombre("Deporte").build();
-		Categoria computacion =  Categoria.builder().nombre("Computación").build();
-		Categoria muebles =  Categoria.builder().nombre("Muebles").build();
-
-
-		Flux.just(electronico,deporte,computacion,muebles)
-				.flatMap(productoService::save)
-				.doOnNext( categoria -> log.info("Categoria :"+categoria.getNombre()+" guardada en BD"))
-				// Incluir otro flujo con su logica una vez haya terminado el anterior
-				// then se usa para Mono y theMany para Flux !!
-				.thenMany(Flux.just(
-
-						Producto.builder().categoria(electronico).nombre("TV Panasonic").precio(456.89).build(),
-						Producto.builder().categoria(electronico).nombre("Sony Camara HD Digital").precio(177.89).build(),
-						Producto.builder().categoria(electronico).nombre("Apple ipod").precio(46.89).build(),
-						Producto.builder().categoria(computacion).nombre("Sony Notebook").precio(846.89).build(),
-						Producto.builder().categoria(computacion).nombre("Hewlett Packard Multifuncional").precio(200.89).build(),
-						Producto.builder().categoria(deporte).nombre("Bianchi Bicicleta").precio(70.89).build(),
-						Producto.builder().categoria(computacion).nombre("HP Notebook Omen 17").precio(2500.89).build(),
-						Producto.builder().categoria(muebles).nombre("Mica Cómoda 5 Cajones").precio(150.89).build(),
-						Producto.builder().categoria(electronico).nombre("TV Sony Bravia OLED 4k Ultra HD").precio(2255.89).build()
-						/* No sirve 'map' porque retornaria un Flux de Mono de producto.
-						 * flatMap si nos retorna un Flux de productos nada más!!! */
-				).flatMap(producto ->  {
-					producto.setCreateAt(new Date());
-					return productoService.save(producto);
-				} ))
-
-				.subscribe(producto -> log.info("Insert :" + producto.getId() +" "+ producto.getNombre()));
-
+		/* Antes cada paso se suscribia por separado y el drop podia correr al mismo
+		* tiempo que los inserts. Ahora es una sola secuencia : cada paso empieza
+		* cuando el anterior terminó. Los indices van después del drop (que los borra)
+		* y antes de la siembra, así la unicidad de categorias ya aplica al insertar */
+		Mono<Void> datos = siembraHabilitada
+				? sembradorDatos.limpiar()
+						.then(gestorIndices.reconciliar())
+						.then(sembradorDatos.sembrar())
+						.then()
+				: gestorIndices.reconciliar();
+
+		// Con los datos ya cargados se calculan las vistas en memoria
+		Mono<Void> arranque = datos
+				.then(registroCategorias.cargar())
+				.then(estadisticasCategorias.recalcular())
+				.then(indiceNombres.cargar())
+				.then();
+
+		if (esperarSiembra) {
+			// run() se ejecuta antes de que la aplicación se marque como lista
+			arranque.block(limiteSiembra);
+		} else {
+			arranque.subscribe(
+					null,
+					error -> log.error("Falló la preparación de indices y datos", error),
+					() -> log.info("Indices y siembra en segundo plano terminados"));
+		}
 	}
 
 }
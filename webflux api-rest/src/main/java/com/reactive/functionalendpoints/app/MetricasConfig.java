@@ -0,0 +1,64 @@
+package com.reactive.functionalendpoints.app;
+
+import com.reactive.functionalendpoints.storage.GeneradorVariantes;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Supplier;
+
+/*Objetivo : Métricas en formato Prometheus (GET /actuator/prometheus).
+*            Con actuator, Spring Boot ya registra :
+*            - http.server.requests : un timer por ruta con el patrón del RouterFunction
+*              como tag 'uri' (/api/v2/products/{id}), nunca el path con el id real
+*            - mongodb.driver.commands y mongodb.driver.pool.* : latencia por comando
+*              y estado del pool de conexiones de Mongo
+*            Acá se agregan :
+*            - Métricas de Reactor Netty : conexiones, bytes y errores del servidor
+*            - Tareas en cola de los schedulers de Reactor
+*            Los gauges se calculan solo cuando Prometheus lee, no en cada petición */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public NettyServerCustomizer metricasNetty() {
+        // La uri va con un valor fijo : la latencia por ruta ya está en http.server.requests
+        // y el path real crearía una serie por cada id
+        return httpServer -> httpServer.metrics(true, uri -> "/");
+    }
+
+    @Bean
+    public MeterBinder metricasSchedulers(GeneradorVariantes generadorVariantes) {
+        return registry -> {
+            colaScheduler(registry, "parallel", Schedulers::parallel);
+            colaScheduler(registry, "boundedElastic", Schedulers::boundedElastic);
+            colaScheduler(registry, "variantes-foto", generadorVariantes::getWorkers);
+            Gauge.builder("variantes.foto.cola", generadorVariantes, GeneradorVariantes::tareasEnCola)
+                    .description("Fotos esperando que se generen sus variantes")
+                    .register(registry);
+        };
+    }
+
+    private static void colaScheduler(MeterRegistry registry, String nombre, Supplier<Scheduler> scheduler) {
+        Gauge.builder("reactor.scheduler.tasks.queued", () -> encoladas(scheduler.get()))
+                .tag("scheduler", nombre)
+                .description("Tareas esperando un hilo del scheduler")
+                .register(registry);
+    }
+
+    // Suma lo encolado en cada ejecutor (worker) del scheduler
+    static long encoladas(Scheduler scheduler) {
+        return Scannable.from(scheduler).inners()
+                .mapToLong(worker -> {
+                    Integer enCola = worker.scan(Scannable.Attr.BUFFERED);
+                    return enCola == null ? 0 : enCola;
+                })
+                .sum();
+    }
+}
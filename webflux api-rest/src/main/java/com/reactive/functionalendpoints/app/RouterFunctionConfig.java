@@ -1,6 +1,11 @@
 package com.reactive.functionalendpoints.app;
 
+import com.reactive.functionalendpoints.diagnostico.FiltroLentas;
+import com.reactive.functionalendpoints.handler.CategoriaHandler;
+import com.reactive.functionalendpoints.handler.DiagnosticoHandler;
+import com.reactive.functionalendpoints.handler.FotoHandler;
 import com.reactive.functionalendpoints.handler.ProductoHandler;
+import com.reactive.functionalendpoints.limites.FiltroAdmision;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -13,15 +18,43 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
 public class RouterFunctionConfig {
 
     @Bean
-    public RouterFunction<ServerResponse> routes(ProductoHandler productoHandler){
+    public RouterFunction<ServerResponse> routes(ProductoHandler productoHandler, FotoHandler fotoHandler,
+                                                 CategoriaHandler categoriaHandler, DiagnosticoHandler diagnosticoHandler,
+                                                 FiltroAdmision filtroAdmision, FiltroLentas filtroLentas){
         // Podemos tener varias rutas para el handler
-        return route(GET("/api/v2/products").or(GET("/api/v3/products")), productoHandler::listar)
+        return route(GET("/api/v2/products"), productoHandler::listar)
+                // Variante paginada por cursor (keyset) del listado
+                .andRoute(GET("/api/v3/products"), productoHandler::listarPaginado)
                 //.and(contentType(MediaType.APPLICATION_JSON)) -> Valida la estructura del request
+                .andRoute(GET("/api/v2/products/cache/stats"), productoHandler::estadisticasCache)
+                // Búsqueda en el indice de nombres en memoria (antes de '{id}')
+                .andRoute(GET("/api/v2/products/search"), productoHandler::buscar)
+                .andRoute(GET("/api/v2/products/autocomplete"), productoHandler::autocompletar)
+                // Feed de cambios en SSE con repetición acotada (Last-Event-ID)
+                .andRoute(GET("/api/v2/products/changes"), productoHandler::cambios)
                 .andRoute(GET("/api/v2/products/{id}")/*.and(contentType(MediaType.APPLICATION_JSON))*/, productoHandler::verDetalle)
                 .andRoute(POST("/api/v2/products"),productoHandler::crear)
+                .andRoute(POST("/api/v2/products/batch"),productoHandler::crearLote)
                 .andRoute(PUT("/api/v2/products/{id}"),productoHandler::editar)
+                .andRoute(PATCH("/api/v2/products/{id}"),productoHandler::parchear)
                 .andRoute(DELETE("/api/v2/products/{id}"),productoHandler::eliminar)
+                .andRoute(DELETE("/api/v2/products"),productoHandler::eliminarLote)
                 .andRoute(POST("/api/v2/products/upload/{id}"),productoHandler::upload)
-                .andRoute(POST("/api/v2/products/crear"),productoHandler::crearConFoto);
+                .andRoute(POST("/api/v2/products/crear"),productoHandler::crearConFoto)
+                // Descarga de fotos (zero-copy, ETag y Range)
+                .andRoute(GET("/api/v2/products/{id}/foto"),fotoHandler::verFoto)
+                .andRoute(GET("/api/v2/products/{id}/foto/{variante}"),fotoHandler::verVariante)
+                .andRoute(GET("/api/v2/products/fotos/{archivo}"),fotoHandler::verArchivo)
+                // Categorias desde el registro en memoria
+                .andRoute(GET("/api/v2/categories"),categoriaHandler::listar)
+                // Estadisticas por categoria (foto materializada en memoria), antes de '{id}'
+                .andRoute(GET("/api/v2/categories/stats"),categoriaHandler::estadisticas)
+                .andRoute(GET("/api/v2/categories/{id}"),categoriaHandler::verDetalle)
+                // Últimas peticiones lentas (las registra el filtro de abajo)
+                .andRoute(GET("/api/v2/diagnostics/slow-requests"),diagnosticoHandler::lentas)
+                // Límites de tasa por cliente y de concurrencia por ruta (429/503 antes del handler)
+                .filter(filtroAdmision)
+                // Mide todas las rutas (el último filtro es el más externo) y guarda las que superan el umbral
+                .filter(filtroLentas);
     }
 }
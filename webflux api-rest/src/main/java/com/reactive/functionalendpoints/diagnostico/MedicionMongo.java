@@ -0,0 +1,97 @@
+package com.reactive.functionalendpoints.diagnostico;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.RequestContext;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import com.mongodb.reactivestreams.client.ReactiveContextProvider;
+import org.reactivestreams.Subscriber;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.stereotype.Component;
+import reactor.core.CoreSubscriber;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/*Objetivo : Suma el tiempo de cada comando a Mongo a la petición HTTP que
+*            lo originó. El driver reactivo le pregunta al ContextProvider por
+*            el contexto de cada suscriptor : se le pasa la MedicionPeticion que
+*            FiltroLentas dejó en el Context de Reactor (en un ContextoMongo, uno
+*            por comando), y el driver la devuelve en los eventos del CommandListener */
+@Component
+public class MedicionMongo implements CommandListener, MongoClientSettingsBuilderCustomizer {
+
+    private static final ContextoMongo SIN_MEDICION = new ContextoMongo(null);
+
+    @Override
+    public void customize(MongoClientSettings.Builder builder) {
+        builder.contextProvider((ReactiveContextProvider) this::contexto)
+                .addCommandListener(this);
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        sumar(event.getRequestContext(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        sumar(event.getRequestContext(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private RequestContext contexto(Subscriber<?> subscriber) {
+        if (subscriber instanceof CoreSubscriber<?> core) {
+            MedicionPeticion medicion = MedicionPeticion.de(core.currentContext());
+            if (medicion != null)
+                return new ContextoMongo(medicion);
+        }
+        return SIN_MEDICION;
+    }
+
+    private static void sumar(RequestContext contexto, long nanos) {
+        if (contexto instanceof ContextoMongo mongo && mongo.medicion() != null)
+            mongo.medicion().sumarMongo(nanos);
+    }
+
+    // RequestContext de solo lectura con una única entrada (la medición)
+    private record ContextoMongo(MedicionPeticion medicion) implements RequestContext {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T get(Object key) {
+            return key == MedicionPeticion.class ? (T) medicion : null;
+        }
+
+        @Override
+        public boolean hasKey(Object key) {
+            return key == MedicionPeticion.class && medicion != null;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return medicion == null;
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            throw new UnsupportedOperationException("Contexto de solo lectura");
+        }
+
+        @Override
+        public void delete(Object key) {
+            throw new UnsupportedOperationException("Contexto de solo lectura");
+        }
+
+        @Override
+        public int size() {
+            return medicion == null ? 0 : 1;
+        }
+
+        @Override
+        public Stream<Map.Entry<Object, Object>> stream() {
+            return medicion == null ? Stream.empty() : Stream.of(Map.<Object, Object>entry(MedicionPeticion.class, medicion));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.reactive.functionalendpoints.diagnostico;
+
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/*Objetivo : Tiempos de una petición en curso. FiltroLentas la deja en el
+*            Context de Reactor y MedicionMongo le suma lo que tarda cada
+*            comando de esa petición. Es el único estado que se guarda por
+*            petición; el filtro además crea la RespuestaDecorada y las lambdas de
+*            sus operadores, y MedicionMongo un ContextoMongo por comando. Los datos
+*            de diagnóstico se arman solo si la petición resulta lenta. El costo por
+*            petición : 'gradlew jmh -Pjmh.includes=RutasBenchmark -Pjmh.profilers=gc' */
+public final class MedicionPeticion {
+
+    // Un updater sobre un long volatile en lugar de un AtomicLong : un objeto menos por petición
+    private static final AtomicLongFieldUpdater<MedicionPeticion> MONGO =
+            AtomicLongFieldUpdater.newUpdater(MedicionPeticion.class, "mongoNanos");
+
+    private final long inicio;
+
+    private volatile long mongoNanos;
+
+    MedicionPeticion(long inicio) {
+        this.inicio = inicio;
+    }
+
+    // null si la operación no viene de una petición medida
+    public static MedicionPeticion de(ContextView contexto) {
+        return contexto.getOrDefault(MedicionPeticion.class, null);
+    }
+
+    public void sumarMongo(long nanos) {
+        MONGO.addAndGet(this, nanos);
+    }
+
+    long getInicio() {
+        return inicio;
+    }
+
+    long getMongoNanos() {
+        return mongoNanos;
+    }
+}
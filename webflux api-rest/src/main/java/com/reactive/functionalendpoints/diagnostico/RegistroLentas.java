@@ -0,0 +1,49 @@
+package com.reactive.functionalendpoints.diagnostico;
+
+import com.reactive.functionalendpoints.models.dto.PeticionLenta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*Objetivo : Últimas peticiones lentas en un buffer circular acotado y sin
+*            locks : cada registro toma su posición con un getAndIncrement y
+*            pisa la más vieja. La lectura es aproximada (una posición puede
+*            estar escribiéndose), alcanza para diagnóstico */
+@Component
+public class RegistroLentas {
+
+    private final AtomicReferenceArray<PeticionLenta> buffer;
+
+    // Total registrado desde el arranque, la posición es siguiente % tamaño
+    private final AtomicLong siguiente = new AtomicLong();
+
+    public RegistroLentas(@Value("${configuration.lentas.capacidad:256}") int capacidad) {
+        this.buffer = new AtomicReferenceArray<>(capacidad);
+    }
+
+    public void registrar(PeticionLenta peticion) {
+        long posicion = siguiente.getAndIncrement();
+        buffer.set((int) (posicion % buffer.length()), peticion);
+    }
+
+    // Más recientes primero
+    public List<PeticionLenta> recientes() {
+        long fin = siguiente.get();
+        long desde = Math.max(0, fin - buffer.length());
+        List<PeticionLenta> resultado = new ArrayList<>((int) (fin - desde));
+        for (long posicion = fin - 1; posicion >= desde; posicion--) {
+            PeticionLenta peticion = buffer.get((int) (posicion % buffer.length()));
+            if (peticion != null)
+                resultado.add(peticion);
+        }
+        return resultado;
+    }
+
+    public long getTotal() {
+        return siguiente.get();
+    }
+}
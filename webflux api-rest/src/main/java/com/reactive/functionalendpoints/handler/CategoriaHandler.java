@@ -0,0 +1,47 @@
+package com.reactive.functionalendpoints.handler;
+
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.services.EstadisticasCategorias;
+import com.reactive.functionalendpoints.models.services.ProductoService;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+@Component
+public class CategoriaHandler {
+
+    private final ProductoService productoService;
+
+    private final EstadisticasCategorias estadisticasCategorias;
+
+    public CategoriaHandler(ProductoService productoService, EstadisticasCategorias estadisticasCategorias) {
+        this.productoService = productoService;
+        this.estadisticasCategorias = estadisticasCategorias;
+    }
+
+    // Las categorias salen del registro en memoria, no de Mongo
+    public Mono<ServerResponse> listar(ServerRequest request){
+
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(productoService.findAllCategoria(), Categoria.class);
+    }
+
+    public Mono<ServerResponse> verDetalle(ServerRequest request){
+
+        return productoService.findCategoriaById(request.pathVariable("id"))
+                .flatMap( categoria -> ServerResponse.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromValue(categoria)))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // Responde con la última foto calculada, no consulta Mongo
+    public Mono<ServerResponse> estadisticas(ServerRequest request){
+
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(estadisticasCategorias.actual()));
+    }
+}
@@ -0,0 +1,37 @@
+package com.reactive.functionalendpoints.handler;
+
+import com.reactive.functionalendpoints.diagnostico.FiltroLentas;
+import com.reactive.functionalendpoints.diagnostico.RegistroLentas;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class DiagnosticoHandler {
+
+    private final RegistroLentas registroLentas;
+
+    private final FiltroLentas filtroLentas;
+
+    public DiagnosticoHandler(RegistroLentas registroLentas, FiltroLentas filtroLentas) {
+        this.registroLentas = registroLentas;
+        this.filtroLentas = filtroLentas;
+    }
+
+    // Últimas peticiones lentas capturadas por FiltroLentas, más recientes primero
+    public Mono<ServerResponse> lentas(ServerRequest request){
+
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("umbralMs", filtroLentas.getUmbral().toMillis());
+        resultado.put("capturadas", registroLentas.getTotal());
+        resultado.put("peticiones", registroLentas.recientes());
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(resultado));
+    }
+}
@@ -0,0 +1,22 @@
+package com.reactive.functionalendpoints.handler;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Map;
+
+/*Objetivo : Resultado de leer un multipart en streaming : los campos de
+*            texto del formulario y el nombre con el que quedó guardado en
+*            disco el archivo de la parte 'file' (null si no venia). */
+@Getter
+@AllArgsConstructor
+public class FormularioMultipart {
+
+    private final Map<String, String> campos;
+
+    private final String foto;
+
+    public String campo(String nombre) {
+        return campos.get(nombre);
+    }
+}
@@ -0,0 +1,139 @@
+package com.reactive.functionalendpoints.handler;
+
+import com.reactive.functionalendpoints.models.services.ProductoService;
+import com.reactive.functionalendpoints.storage.FotoStorage;
+import com.reactive.functionalendpoints.storage.GeneradorVariantes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+
+/*Objetivo : Descarga de las fotos guardadas en 'configuration.path'.
+*            - El archivo se envia con BodyInserters.fromResource : con Reactor
+*              Netty eso es transferencia zero-copy (sendfile), el contenido no
+*              pasa por el heap
+*            - Soporta peticiones por rango (Range) con respuesta 206
+*            - ETag fuerte y Cache-Control, 'If-None-Match' responde 304.
+*              Los blobs direccionados por contenido (/fotos/{archivo}) usan su
+*              hash como ETag y nunca cambian, por eso se cachean por un año.
+*              Las rutas por id cambian con cada 'upload' : no-cache, el cliente
+*              revalida con el ETag en cada uso (304 sin cuerpo si no cambió)
+*            - Variantes redimensionadas (thumb, medium...) de la foto */
+@Component
+public class FotoHandler {
+
+    private static final Duration UN_ANO = Duration.ofDays(365);
+
+    private final ProductoService productoService;
+
+    private final FotoStorage fotoStorage;
+
+    private final GeneradorVariantes generadorVariantes;
+
+    // Cache-Control de /fotos/{archivo} cuando el archivo no está direccionado por contenido
+    private final Duration maxAge;
+
+    public FotoHandler(ProductoService productoService, FotoStorage fotoStorage, GeneradorVariantes generadorVariantes,
+                       @Value("${configuration.fotos.cache-max-age:1h}") Duration maxAge) {
+        this.productoService = productoService;
+        this.fotoStorage = fotoStorage;
+        this.generadorVariantes = generadorVariantes;
+        this.maxAge = maxAge;
+    }
+
+    // GET /api/v2/products/{id}/foto
+    public Mono<ServerResponse> verFoto(ServerRequest request){
+
+        return productoService.findById(request.pathVariable("id"))
+                .filter(producto -> producto.getFoto() != null)
+                .flatMap(producto -> servir(request, producto.getFoto(), CacheControl.noCache()))
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    /* GET /api/v2/products/{id}/foto/{variante} : si la variante todavia no se
+    * ha generado (cola llena, trabajo pendiente) se entrega la foto original */
+    public Mono<ServerResponse> verVariante(ServerRequest request){
+
+        String variante = request.pathVariable("variante");
+        if (!generadorVariantes.existe(variante))
+            return ServerResponse.notFound().build();
+
+        return productoService.findById(request.pathVariable("id"))
+                .filter(producto -> producto.getFoto() != null)
+                .flatMap(producto -> {
+                    String archivo = producto.getVariantes() == null ? null : producto.getVariantes().get(variante);
+                    return servir(request, archivo != null ? archivo : producto.getFoto(), CacheControl.noCache());
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    // GET /api/v2/products/fotos/{archivo}
+    public Mono<ServerResponse> verArchivo(ServerRequest request){
+
+        // Si el nombre es el hash del contenido esta URL nunca cambia de contenido
+        String nombre = request.pathVariable("archivo");
+        return servir(request, nombre, CacheControl.maxAge(FotoStorage.clave(nombre) != null ? UN_ANO : maxAge).cachePublic());
+    }
+
+    // 'cacheControl' lo decide la ruta : solo la URL del blob es inmutable
+    private Mono<ServerResponse> servir(ServerRequest request, String nombre, CacheControl cacheControl){
+
+        Path archivo = fotoStorage.resolver(nombre);
+        if (archivo == null)
+            return ServerResponse.notFound().build();
+
+        // Los atributos del archivo se leen fuera del event loop
+        return Mono.fromCallable(() -> Files.isRegularFile(archivo)
+                        ? Files.readAttributes(archivo, BasicFileAttributes.class) : null)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(atributos -> {
+                    String clave = FotoStorage.clave(nombre);
+                    String etag = "\"" + (clave != null ? clave
+                            : Long.toHexString(atributos.size()) + "-" + Long.toHexString(atributos.lastModifiedTime().toMillis())) + "\"";
+
+                    if (coincideEtag(request, etag))
+                        return ServerResponse.status(HttpStatus.NOT_MODIFIED)
+                                .eTag(etag)
+                                .cacheControl(cacheControl)
+                                .build();
+
+                    MediaType mediaType = MediaTypeFactory.getMediaType(nombre).orElse(MediaType.APPLICATION_OCTET_STREAM);
+                    return ServerResponse.ok()
+                            .contentType(mediaType)
+                            .eTag(etag)
+                            .cacheControl(cacheControl)
+                            .lastModified(atributos.lastModifiedTime().toInstant())
+                            // ResourceHttpMessageWriter resuelve el header Range y usa zero-copy
+                            .body(BodyInserters.fromResource(new FileSystemResource(archivo)));
+                })
+                .switchIfEmpty(ServerResponse.notFound().build());
+    }
+
+    private static boolean coincideEtag(ServerRequest request, String etag){
+
+        for (String valor : request.headers().header(HttpHeaders.IF_NONE_MATCH)) {
+            for (String candidato : valor.split(",")) {
+                String limpio = candidato.trim();
+                if (limpio.startsWith("W/"))
+                    limpio = limpio.substring(2);
+                if (limpio.equals("*") || limpio.equals(etag))
+                    return true;
+            }
+        }
+        return false;
+    }
+}
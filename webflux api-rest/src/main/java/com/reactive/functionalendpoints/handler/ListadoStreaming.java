@@ -0,0 +1,131 @@
+package com.reactive.functionalendpoints.handler;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.services.CamposProducto;
+import com.reactive.functionalendpoints.models.services.FiltroProductos;
+import com.reactive.functionalendpoints.models.services.ProductoService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.data.domain.Sort;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpOutputMessage;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserter;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/*Objetivo : Variantes en streaming del listado de productos (NDJSON y SSE).
+*            Los productos salen directo del cursor de Mongo sin armar el
+*            arreglo completo en memoria :
+*            - prefetch acotado hacia Mongo (batchSize del cursor + limitRate)
+*            - flush cada 'flush-batch-size' elementos
+*            - si el cliente se desconecta se cancela la suscripción y con
+*              ella el cursor de Mongo */
+@Component
+public class ListadoStreaming {
+
+    private static final Logger log = LoggerFactory.getLogger(ListadoStreaming.class);
+
+    private static final byte[] SALTO = "\n".getBytes(StandardCharsets.UTF_8);
+
+    private final ProductoService productoService;
+
+    private final ObjectMapper objectMapper;
+
+    private final int prefetch;
+
+    private final int loteFlush;
+
+    // Permite usar findAllWithNameUpperCaseRepeat() como fuente para pruebas de carga (?soak)
+    private final boolean soakHabilitado;
+
+    public ListadoStreaming(ProductoService productoService, ObjectMapper objectMapper,
+                            @Value("${configuration.streaming.prefetch:256}") int prefetch,
+                            @Value("${configuration.streaming.flush-batch-size:64}") int loteFlush,
+                            @Value("${configuration.streaming.soak-enabled:false}") boolean soakHabilitado) {
+        this.productoService = productoService;
+        this.objectMapper = objectMapper;
+        this.prefetch = prefetch;
+        this.loteFlush = loteFlush;
+        this.soakHabilitado = soakHabilitado;
+    }
+
+    // El cliente debe pedir explicitamente el media type, '*/*' sigue siendo JSON
+    public boolean acepta(ServerRequest request, MediaType mediaType) {
+        List<MediaType> aceptados = request.headers().accept();
+        return aceptados.stream().anyMatch(m -> !m.isWildcardType() && !m.isWildcardSubtype() && m.isCompatibleWith(mediaType));
+    }
+
+    /* 'filtro' y 'orden' los mismos del listado paginado (orden null = orden natural),
+    * 'campos' proyección opcional (?fields=), null para el documento completo */
+    public Mono<ServerResponse> ndjson(ServerRequest request, FiltroProductos filtro, Sort orden, CamposProducto campos) {
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(escribirPorLotes(fuente(request, filtro, orden, campos), campos, this::lineaNdjson));
+    }
+
+    public Mono<ServerResponse> sse(ServerRequest request, FiltroProductos filtro, Sort orden, CamposProducto campos) {
+        return ServerResponse.ok().contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(escribirPorLotes(fuente(request, filtro, orden, campos), campos, this::eventoSse));
+    }
+
+    private Flux<Producto> fuente(ServerRequest request, FiltroProductos filtro, Sort orden, CamposProducto campos) {
+        Flux<Producto> productos = soakHabilitado && request.queryParam("soak").isPresent()
+                ? productoService.findAllWithNameUpperCaseRepeat()
+                : productoService.findAllStream(prefetch, filtro, orden, campos);
+
+        return productos.limitRate(prefetch)
+                .doOnCancel(() -> log.info("Cliente desconectado, se cancela el listado en streaming"));
+    }
+
+    /* Se escribe directamente sobre la respuesta para controlar cuando se hace
+    * flush : cada ventana de 'loteFlush' elementos se envia al socket de una vez.
+    * Las ventanas son de productos y cada buffer se crea cuando el writer lo pide :
+    * una ventana que queda sin suscribir al cancelar no retiene buffers, y los que
+    * ya recibió el writer los libera él */
+    private BodyInserter<Flux<Producto>, ReactiveHttpOutputMessage> escribirPorLotes(Flux<Producto> productos, CamposProducto campos,
+                                                                                     Formato formato) {
+        return (mensaje, contexto) -> {
+            DataBufferFactory factory = mensaje.bufferFactory();
+            return mensaje.writeAndFlushWith(productos
+                    .window(loteFlush)
+                    .map(ventana -> ventana.map(producto ->
+                            formato.escribir(factory, producto, campos == null ? producto : campos.recortar(producto)))));
+        };
+    }
+
+    private DataBuffer lineaNdjson(DataBufferFactory factory, Producto producto, Object cuerpo) {
+        byte[] json = json(producto, cuerpo);
+        return factory.allocateBuffer(json.length + SALTO.length).write(json).write(SALTO);
+    }
+
+    private DataBuffer eventoSse(DataBufferFactory factory, Producto producto, Object cuerpo) {
+        byte[] cabecera = ("id:" + producto.getId() + "\nevent:producto\ndata:").getBytes(StandardCharsets.UTF_8);
+        byte[] json = json(producto, cuerpo);
+        return factory.allocateBuffer(cabecera.length + json.length + 2 * SALTO.length)
+                .write(cabecera).write(json).write(SALTO).write(SALTO);
+    }
+
+    // 'cuerpo' es el producto completo o el Map con los campos pedidos
+    private byte[] json(Producto producto, Object cuerpo) {
+        try {
+            return objectMapper.writeValueAsBytes(cuerpo);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el producto " + producto.getId(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Formato {
+        DataBuffer escribir(DataBufferFactory factory, Producto producto, Object cuerpo);
+    }
+}
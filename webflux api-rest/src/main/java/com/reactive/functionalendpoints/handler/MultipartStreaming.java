@@ -0,0 +1,103 @@
+package com.reactive.functionalendpoints.handler;
+
+import com.reactive.functionalendpoints.storage.FotoStorage;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.multipart.FilePartEvent;
+import org.springframework.http.codec.multipart.FormPartEvent;
+import org.springframework.http.codec.multipart.PartEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*Objetivo : Leer un multipart/form-data en una sola pasada, parte por parte
+*            (PartEvent), en lugar de request.multipartData() que arma todo
+*            el mapa de partes antes de poder usarlo.
+*            - Los bytes de la parte 'file' se envian al FotoStorage a medida
+*              que llegan, que los escribe con canales no bloqueantes
+*            - Los campos de texto se guardan en un mapa
+*            - Limites configurables de tamaño de parte y cantidad de partes.
+*              El limite en memoria de los campos de texto es
+*              'spring.codec.max-in-memory-size' */
+@Component
+public class MultipartStreaming {
+
+    public static final String PARTE_ARCHIVO = "file";
+
+    private final FotoStorage fotoStorage;
+
+    private final long tamanoMaximoParte;
+
+    private final int maximoPartes;
+
+    public MultipartStreaming(FotoStorage fotoStorage,
+                              @Value("${configuration.multipart.max-part-size:10MB}") DataSize tamanoMaximoParte,
+                              @Value("${configuration.multipart.max-parts:16}") int maximoPartes) {
+        this.fotoStorage = fotoStorage;
+        this.tamanoMaximoParte = tamanoMaximoParte.toBytes();
+        this.maximoPartes = maximoPartes;
+    }
+
+    public Mono<FormularioMultipart> leer(ServerRequest request) {
+
+        Map<String, String> campos = new HashMap<>();
+        AtomicReference<String> foto = new AtomicReference<>();
+        AtomicInteger partes = new AtomicInteger();
+
+        return request.bodyToFlux(PartEvent.class)
+                // Cada ventana son los eventos de una parte, la ultima trae isLast()
+                .windowUntil(PartEvent::isLast)
+                // concatMap : las partes se procesan una a la vez y en orden
+                .concatMap(parte -> parte.switchOnFirst((signal, eventos) -> {
+                    if (!signal.hasValue())
+                        return eventos.then();
+
+                    if (partes.incrementAndGet() > maximoPartes)
+                        return Mono.<Void>error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                "El formulario no puede tener más de " + maximoPartes + " partes"));
+
+                    PartEvent evento = signal.get();
+                    if (evento instanceof FilePartEvent archivo && PARTE_ARCHIVO.equals(archivo.name()) && foto.get() == null) {
+                        return escribir(eventos.map(PartEvent::content), archivo.filename())
+                                .doOnNext(foto::set)
+                                .then();
+                    }
+                    if (evento instanceof FormPartEvent campo)
+                        campos.put(campo.name(), campo.value());
+
+                    // Se descarta el contenido de las partes que no se usan
+                    return eventos.doOnNext(e -> DataBufferUtils.release(e.content())).then();
+                }))
+                /* Si algo falla después de escribir el archivo, el blob queda sin
+                * referencias y lo borra el recolector del FotoStorage */
+                .then(Mono.fromCallable(() -> new FormularioMultipart(campos, foto.get())));
+    }
+
+    private Mono<String> escribir(Flux<DataBuffer> contenido, String nombreOriginal) {
+
+        AtomicLong escritos = new AtomicLong();
+
+        Flux<DataBuffer> limitado = contenido.handle((buffer, sink) -> {
+            if (escritos.addAndGet(buffer.readableByteCount()) > tamanoMaximoParte) {
+                DataBufferUtils.release(buffer);
+                sink.error(new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE,
+                        "El archivo supera el tamaño máximo de " + tamanoMaximoParte + " bytes"));
+            } else {
+                sink.next(buffer);
+            }
+        });
+
+        return fotoStorage.guardar(limitado, nombreOriginal);
+    }
+}
@@ -2,11 +2,19 @@ package com.reactive.functionalendpoints.handler;
 
 import com.reactive.functionalendpoints.models.documents.Categoria;
 import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.CambioProducto;
+import com.reactive.functionalendpoints.models.dto.ResultadoLote;
+import com.reactive.functionalendpoints.models.services.BusCambios;
+import com.reactive.functionalendpoints.models.services.CamposProducto;
+import com.reactive.functionalendpoints.models.services.CursorProductos;
+import com.reactive.functionalendpoints.models.services.FiltroProductos;
 import com.reactive.functionalendpoints.models.services.ProductoService;
+import com.reactive.functionalendpoints.storage.GeneradorVariantes;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
-import org.springframework.http.codec.multipart.FilePart;
-import org.springframework.http.codec.multipart.FormFieldPart;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.Errors;
@@ -17,11 +25,21 @@ import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
-import java.io.File;
 import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
-import java.util.UUID;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Component
 public class ProductoHandler {
@@ -30,83 +48,170 @@ public class ProductoHandler {
 
     private final ProductoService productoService;
 
-    private final String ruta;
-
     /*Importante !! Para validaciones */
     private final Validator validator;
 
+    // Header donde viaja el cursor de la siguiente página del listado paginado
+    public static final String HEADER_SIGUIENTE = "X-Next-Cursor";
+
+    // Parametros que convierten el listado completo en una consulta paginada
+    private static final Set<String> PARAMETROS_CONSULTA = Set.of("limit", "after", "sort", "dir",
+            "category", "minPrice", "maxPrice", "name", "createdAfter", "createdBefore");
+
+    private final int limiteDefecto;
+
+    private final int limiteMaximo;
+
+    private final ListadoStreaming listadoStreaming;
+
+    private final MultipartStreaming multipartStreaming;
+
+    private final GeneradorVariantes generadorVariantes;
+
+    private final BusCambios busCambios;
+
+    private final Duration latidoCambios;
+
+    // Carga masiva : tamaño de cada insert bulk y cuantos se ejecutan a la vez
+    private final int tamanoLote;
 
-    public ProductoHandler(ProductoService productoService, @Value("${configuration.path}")String ruta, Validator validator) {
+    private final int concurrenciaLote;
+
+    private final int maximoIdsEliminar;
+
+
+    public ProductoHandler(ProductoService productoService, Validator validator,
+                           @Value("${configuration.pagination.default-limit:50}") int limiteDefecto,
+                           @Value("${configuration.pagination.max-limit:500}") int limiteMaximo,
+                           ListadoStreaming listadoStreaming, MultipartStreaming multipartStreaming,
+                           GeneradorVariantes generadorVariantes, BusCambios busCambios,
+                           @Value("${configuration.changes.heartbeat:PT15S}") Duration latidoCambios,
+                           @Value("${configuration.batch.chunk-size:500}") int tamanoLote,
+                           @Value("${configuration.batch.concurrency:2}") int concurrenciaLote,
+                           @Value("${configuration.batch.max-delete-ids:1000}") int maximoIdsEliminar) {
         this.productoService = productoService;
-        this.ruta = ruta;
         this.validator = validator;
+        this.limiteDefecto = limiteDefecto;
+        this.limiteMaximo = limiteMaximo;
+        this.listadoStreaming = listadoStreaming;
+        this.multipartStreaming = multipartStreaming;
+        this.generadorVariantes = generadorVariantes;
+        this.busCambios = busCambios;
+        this.latidoCambios = latidoCambios;
+        this.tamanoLote = tamanoLote;
+        this.concurrenciaLote = concurrenciaLote;
+        this.maximoIdsEliminar = maximoIdsEliminar;
     }
 
     public Mono<ServerResponse> crearConFoto(ServerRequest request){
 
-        // Construimos el objeto producto proveniente del request (form-data)
-
-        // Obtengo el multipartData y extraigo solo el 'file'
-        return request.multipartData().map( multipart -> multipart.toSingleValueMap().get("file"))
-                .cast(FilePart.class)
-                .flatMap(filePart -> {
-                    /*Objetivo : Usamos  request.multipartData() porque la información está siendo enviada desde
-                    * un formulario de postman debido a que va con una imagen. Por lo anterior usamos un .map()
-                    * para crear/modificar el Mono<multipartData> a Mono<Producto> creando ah[i el objeto.
-                    * Como estamos usando .map() es necesario solo devolver el objeto -Producto- y ya queda
-                    * encapsulado en el Mono*/
-                    return request.multipartData().map( multipart -> {
-                        FormFieldPart nombre = (FormFieldPart) multipart.toSingleValueMap().get("nombre");
-                        FormFieldPart precio = (FormFieldPart) multipart.toSingleValueMap().get("precio");
-                        FormFieldPart categoriaId = (FormFieldPart) multipart.toSingleValueMap().get("categoria.id");
-                        FormFieldPart categoriaNombre = (FormFieldPart) multipart.toSingleValueMap().get("categoria.nombre");
-
-                        Categoria categoria = Categoria.builder().nombre(categoriaNombre.value()).id(categoriaId.value()).build();
-                        return Producto.builder().nombre(nombre.value()).precio(Double.valueOf(precio.value())).categoria(categoria).build();
-                        /*A continuación usamos el filePart para terminar de armar el objeto Producto,
-                        * guardar el File en disco y guardar el objeto producto en BD*/
-                    }).flatMap( producto -> {
-                        producto.setFoto(UUID.randomUUID().toString() + "-" + filePart.filename()
-                                .replace(" ","-")
-                                .replace(":","")
-                                .replace("\\",""));
-                        producto.setCreateAt(new Date());
-                        return filePart.transferTo(new File(ruta + producto.getFoto()))
-                                .then(productoService.save(producto));
-
-                    });
-                }).flatMap( p -> ServerResponse
-                .created(URI.create("/api/v2/products".concat(p.getId())))
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(BodyInserters.fromValue(p)));
+        /*Objetivo : La información llega desde un formulario (form-data) porque va con una imagen.
+        * El multipart se lee una sola vez y en streaming : el archivo de la parte 'file' queda
+        * escrito en disco mientras llega y los demás campos se usan para armar el Producto */
+        return multipartStreaming.leer(request)
+                .flatMap(formulario -> {
+                    if (formulario.getFoto() == null)
+                        return ServerResponse.badRequest().body(BodyInserters.fromValue(List.of("El campo file es obligatorio")));
+
+                    Producto producto = productoDesdeFormulario(formulario);
+                    List<String> errores = validar(producto);
+                    if (!errores.isEmpty())
+                        // El blob ya escrito queda sin referencias, lo borra el recolector del FotoStorage
+                        return ServerResponse.badRequest().body(BodyInserters.fromValue(errores));
+
+                    producto.setFoto(formulario.getFoto());
+                    producto.setCreateAt(new Date());
+                    return productoService.save(producto)
+                            // Las variantes (thumb, medium) se generan en segundo plano
+                            .doOnNext(p -> generadorVariantes.encolar(p.getId(), p.getFoto()))
+                            .flatMap( p -> ServerResponse
+                                    .created(URI.create("/api/v2/products".concat(p.getId())))
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .body(BodyInserters.fromValue(p)));
+                })
+                // precio que no es un número
+                .onErrorResume(NumberFormatException.class, error -> ServerResponse.badRequest()
+                        .body(BodyInserters.fromValue(List.of("El campo precio debe ser un número"))));
 
     }
 
     public Mono<ServerResponse> upload(ServerRequest request){
 
-        // Obtengo el multipartData y extraigo solo el 'file'
-        return request.multipartData().map( multipart -> multipart.toSingleValueMap().get("file"))
-                .cast(FilePart.class)
-                .flatMap(filePart -> productoService.findById(request.pathVariable("id"))
-                        .flatMap( producto -> {
-                            producto.setFoto(UUID.randomUUID().toString() + "-" + filePart.filename()
-                                    .replace(" ","-")
-                                    .replace(":","")
-                                    .replace("\\",""));
-                            return filePart.transferTo(new File(ruta + producto.getFoto()))
-                                    .then(productoService.save(producto));
-
-                        })).flatMap( p -> ServerResponse
-                        .created(URI.create("/api/v2/products".concat(p.getId())))
-                        .contentType(MediaType.APPLICATION_JSON)
-                        .body(BodyInserters.fromValue(p)))
+        // Primero el producto (404 sin leer el archivo), luego el multipart en streaming
+        return productoService.findById(request.pathVariable("id"))
+                .flatMap( producto -> multipartStreaming.leer(request)
+                        .flatMap( formulario -> {
+                            if (formulario.getFoto() == null)
+                                return ServerResponse.badRequest().body(BodyInserters.fromValue(List.of("El campo file es obligatorio")));
+
+                            // La foto anterior queda sin esta referencia, el recolector la borra si nadie más la usa
+                            producto.setFoto(formulario.getFoto());
+                            // Las variantes de la foto anterior ya no aplican
+                            producto.setVariantes(null);
+                            return productoService.save(producto)
+                                    .doOnNext(p -> generadorVariantes.encolar(p.getId(), p.getFoto()))
+                                    .flatMap( p -> ServerResponse
+                                            .created(URI.create("/api/v2/products".concat(p.getId())))
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .body(BodyInserters.fromValue(p)));
+                        }))
                 .switchIfEmpty(ServerResponse.notFound().build());
 
     }
 
+    // Arma el producto con los campos de texto del formulario (nombre, precio, categoria.id, categoria.nombre)
+    private Producto productoDesdeFormulario(FormularioMultipart formulario){
+
+        Categoria categoria = null;
+        if (formulario.campo("categoria.id") != null || formulario.campo("categoria.nombre") != null)
+            categoria = Categoria.builder().id(formulario.campo("categoria.id")).nombre(formulario.campo("categoria.nombre")).build();
+
+        String precio = formulario.campo("precio");
+        return Producto.builder()
+                .nombre(formulario.campo("nombre"))
+                .precio(precio == null ? null : Double.valueOf(precio))
+                .categoria(categoria)
+                .build();
+    }
+
     // Recibe un ServerRequest, devuelve un ServerResponse
     public Mono<ServerResponse> listar(ServerRequest request){
 
+       // ?fields=id,nombre,precio : solo esos campos (proyección en Mongo)
+       CamposProducto campos;
+       try {
+           campos = CamposProducto.parsear(request.queryParam("fields").orElse(null));
+       } catch (IllegalArgumentException e) {
+           return ServerResponse.badRequest().body(BodyInserters.fromValue(e.getMessage()));
+       }
+
+       // Variantes en streaming segun el header Accept, con los mismos filtros y orden del listado paginado
+       boolean sse = listadoStreaming.acepta(request, MediaType.TEXT_EVENT_STREAM);
+       if (sse || listadoStreaming.acepta(request, MediaType.APPLICATION_NDJSON)) {
+           FiltroProductos filtro;
+           Sort orden;
+           try {
+               filtro = filtro(request);
+               // Se valida antes de responder : en streaming el 200 ya se envió cuando se ejecuta la consulta
+               filtro.criterio();
+               orden = ordenStreaming(request);
+           } catch (IllegalArgumentException e) {
+               // Incluye NumberFormatException de los precios
+               return ServerResponse.badRequest().body(BodyInserters.fromValue(String.valueOf(e.getMessage())));
+           }
+           return sse ? listadoStreaming.sse(request, filtro, orden, campos)
+                   : listadoStreaming.ndjson(request, filtro, orden, campos);
+       }
+
+       // Con filtros u orden se responde igual que el listado paginado (con tope de tamaño)
+       if (PARAMETROS_CONSULTA.stream().anyMatch(parametro -> request.queryParam(parametro).isPresent()))
+           return listarPaginado(request);
+
+       if (campos != null)
+           return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                   .body(productoService.findAll(campos).map(campos::recortar),
+                           new ParameterizedTypeReference<Map<String, Object>>() {});
+
        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
                 // el body por defecto devuelve un observable
                 // Primer parametro la logica a ejecutar y segundo paramatro la clase o tipo de objeto del observable
@@ -116,14 +221,154 @@ public class ProductoHandler {
 
     }
 
+    /* Listado paginado por llave (keyset) :
+    *  ?limit=n&after=cursor&sort=id|createAt|precio|nombre&dir=asc|desc
+    *  Filtros opcionales (se combinan con AND) :
+    *  &category=id&minPrice=x&maxPrice=y&name=prefijo
+    *  &createdAfter=fecha&createdBefore=fecha   (yyyy-MM-dd o instante ISO-8601)
+    *  &fields=id,nombre,precio   (solo esos campos)
+    *  El cursor de la siguiente página viaja en el header 'X-Next-Cursor'
+    *  y no existe cuando ya no hay más productos */
+    public Mono<ServerResponse> listarPaginado(ServerRequest request){
+
+        return Mono.defer(() -> {
+                    CamposProducto campos = CamposProducto.parsear(request.queryParam("fields").orElse(null));
+                    int limite = request.queryParam("limit").map(Integer::valueOf).orElse(limiteDefecto);
+                    limite = Math.max(1, Math.min(limite, limiteMaximo));
+                    String campo = request.queryParam("sort").orElse("id");
+                    // Sort.Direction.fromString lanza IllegalArgumentException si no es asc/desc
+                    Sort.Direction direccion = Sort.Direction.fromString(request.queryParam("dir").orElse("asc"));
+
+                    return productoService.findPage(filtro(request), request.queryParam("after").orElse(null),
+                                    limite, campo, direccion, campos)
+                            .flatMap(pagina -> {
+                                ServerResponse.BodyBuilder respuesta = ServerResponse.ok().contentType(MediaType.APPLICATION_JSON);
+                                if (pagina.getSiguiente() != null)
+                                    respuesta.header(HEADER_SIGUIENTE, pagina.getSiguiente());
+                                return campos == null
+                                        ? respuesta.body(BodyInserters.fromValue(pagina.getProductos()))
+                                        : respuesta.body(BodyInserters.fromValue(campos.recortar(pagina.getProductos())));
+                            });
+                })
+                // Parametros o cursor inválidos (incluye NumberFormatException)
+                .onErrorResume(IllegalArgumentException.class, error -> ServerResponse.badRequest()
+                        .body(BodyInserters.fromValue(error.getMessage())));
+    }
+
+    private static FiltroProductos filtro(ServerRequest request) {
+        return FiltroProductos.builder()
+                .categoria(request.queryParam("category").orElse(null))
+                .precioMin(request.queryParam("minPrice").map(Double::valueOf).orElse(null))
+                .precioMax(request.queryParam("maxPrice").map(Double::valueOf).orElse(null))
+                .nombre(request.queryParam("name").orElse(null))
+                .desde(request.queryParam("createdAfter").map(ProductoHandler::fecha).orElse(null))
+                .hasta(request.queryParam("createdBefore").map(ProductoHandler::fecha).orElse(null))
+                .build();
+    }
+
+    /* El streaming recorre todo el resultado : limit y after (páginas) no aplican.
+    * Sin sort ni dir se mantiene el orden natural de la colección */
+    private static Sort ordenStreaming(ServerRequest request) {
+        if (request.queryParam("limit").isPresent() || request.queryParam("after").isPresent())
+            throw new IllegalArgumentException("limit y after solo aplican al listado paginado en JSON");
+        if (request.queryParam("sort").isEmpty() && request.queryParam("dir").isEmpty())
+            return null;
+        String campo = request.queryParam("sort").orElse("id");
+        CursorProductos.validarCampo(campo);
+        return CursorProductos.orden(campo, Sort.Direction.fromString(request.queryParam("dir").orElse("asc")));
+    }
+
+    // Acepta una fecha (inicio del día en UTC) o un instante completo
+    private static Date fecha(String valor) {
+        try {
+            return valor.length() == 10
+                    ? Date.from(LocalDate.parse(valor).atStartOfDay(ZoneOffset.UTC).toInstant())
+                    : Date.from(Instant.parse(valor));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Fecha inválida : " + valor, e);
+        }
+    }
+
+    /* Búsqueda por nombre : ?q=texto&limit=n
+    *  Sin acentos ni mayúsculas y tolera errores de tipeo ("comoda", "bicicelta") */
+    public Mono<ServerResponse> buscar(ServerRequest request){
+
+        String q = request.queryParam("q").orElse("");
+        if (q.isBlank())
+            return ServerResponse.badRequest().body(BodyInserters.fromValue("El parametro q es obligatorio"));
+
+        return Mono.fromCallable(() -> limite(request, 20))
+                .flatMap(limite -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .body(productoService.buscar(q, limite), Producto.class))
+                .onErrorResume(NumberFormatException.class, error -> ServerResponse.badRequest()
+                        .body(BodyInserters.fromValue("limit inválido")));
+    }
+
+    /* Autocompletado : ?q=prefijo&limit=n, responde [{id, nombre}] solo desde
+    *  el indice en memoria (sin Mongo), pensado para cada tecla */
+    public Mono<ServerResponse> autocompletar(ServerRequest request){
+
+        String q = request.queryParam("q").orElse("");
+        if (q.isBlank())
+            return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(BodyInserters.fromValue(List.of()));
+
+        return Mono.fromCallable(() -> productoService.autocompletar(q, limite(request, 10)))
+                .flatMap(sugerencias -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                        .body(BodyInserters.fromValue(sugerencias)))
+                .onErrorResume(NumberFormatException.class, error -> ServerResponse.badRequest()
+                        .body(BodyInserters.fromValue("limit inválido")));
+    }
+
+    private int limite(ServerRequest request, int defecto) {
+        int limite = request.queryParam("limit").map(Integer::valueOf).orElse(defecto);
+        return Math.max(1, Math.min(limite, limiteMaximo));
+    }
+
+    /* Feed de cambios en SSE. Para retomar después de una desconexión el cliente
+    *  envia el último id recibido en el header 'Last-Event-ID' (o ?lastEventId=).
+    *  Un evento RESYNC cierra el stream : hay que recargar el listado completo */
+    public Mono<ServerResponse> cambios(ServerRequest request){
+
+        String ultimo = Optional.ofNullable(request.headers().firstHeader("Last-Event-ID"))
+                .or(() -> request.queryParam("lastEventId"))
+                .orElse(null);
+
+        Flux<ServerSentEvent<CambioProducto>> eventos = busCambios.suscribir(ultimo)
+                // Los latidos (comentarios SSE) mantienen viva la conexión en proxies y balanceadores
+                .publish(cambios -> Flux.merge(
+                        cambios.map(cambio -> ServerSentEvent.builder(cambio)
+                                .id(cambio.getId())
+                                .event(cambio.getTipo())
+                                .build()),
+                        Flux.interval(latidoCambios)
+                                .map(n -> ServerSentEvent.<CambioProducto>builder().comment("latido").build())
+                                .takeUntilOther(cambios.ignoreElements())));
+
+        return ServerResponse.ok().contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(BodyInserters.fromServerSentEvents(eventos));
+    }
+
+    public Mono<ServerResponse> estadisticasCache(ServerRequest request){
+
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                .body(BodyInserters.fromValue(productoService.estadisticasCache()));
+    }
+
     public Mono<ServerResponse> verDetalle(ServerRequest request){
 
-        return productoService.findById(request.pathVariable("id"))
+        CamposProducto campos;
+        try {
+            campos = CamposProducto.parsear(request.queryParam("fields").orElse(null));
+        } catch (IllegalArgumentException e) {
+            return ServerResponse.badRequest().body(BodyInserters.fromValue(e.getMessage()));
+        }
+
+        return productoService.findById(request.pathVariable("id"), campos)
                 .flatMap( producto -> ServerResponse
                         .ok()
                         .contentType(MediaType.APPLICATION_JSON)
                         // body espera un publisher u observable y como estamos dentro del flatMap usamos 'BodyInserters.fromValue'
-                        .body(BodyInserters.fromValue(producto)))
+                        .body(BodyInserters.fromValue(campos == null ? producto : campos.recortar(producto))))
                 .switchIfEmpty(ServerResponse.notFound().build());
 
     }
@@ -143,14 +388,9 @@ public class ProductoHandler {
 
         return request.bodyToMono(Producto.class)
                 .flatMap(p -> {
-                    // Errors para la validación del objeto a crear, es decir, 'p'
-                    Errors errors = new BeanPropertyBindingResult(p,Producto.class.getName());
-                    validator.validate(p,errors);
-                    if (errors.hasErrors()){
-                        return Flux.fromIterable(errors.getFieldErrors())
-                                .map(fieldError -> "El campo "+fieldError.getField()+" "+fieldError.getDefaultMessage())
-                                .collectList()
-                                .flatMap(list -> ServerResponse.badRequest().body(BodyInserters.fromValue(list)));
+                    List<String> errores = validar(p);
+                    if (!errores.isEmpty()){
+                        return ServerResponse.badRequest().body(BodyInserters.fromValue(errores));
                     }else {
 
                         if(p.getCreateAt()==null)
@@ -170,6 +410,120 @@ public class ProductoHandler {
 
     }
 
+    /* Carga masiva : el body puede ser un arreglo JSON o NDJSON y se lee en streaming.
+    *  Cada producto se valida igual que en 'crear' y los validos se insertan en
+    *  lotes de 'chunk-size' con una operación bulk. La respuesta es un stream
+    *  NDJSON con el resultado de cada fila (indice, id, estado, errores) */
+    public Mono<ServerResponse> crearLote(ServerRequest request){
+
+        Flux<ResultadoLote> resultados = request.bodyToFlux(Producto.class)
+                .index()
+                .buffer(tamanoLote)
+                // flatMapSequential : varios lotes en vuelo pero los resultados salen en orden
+                .flatMapSequential(this::insertarLote, concurrenciaLote);
+
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(resultados, ResultadoLote.class);
+    }
+
+    private Flux<ResultadoLote> insertarLote(List<Tuple2<Long, Producto>> lote){
+
+        List<ResultadoLote> invalidos = new ArrayList<>();
+        List<Long> indices = new ArrayList<>();
+        List<Producto> validos = new ArrayList<>();
+
+        for (Tuple2<Long, Producto> item : lote) {
+            Producto p = item.getT2();
+            List<String> errores = validar(p);
+            if (!errores.isEmpty()) {
+                invalidos.add(ResultadoLote.invalido(item.getT1(), errores));
+                continue;
+            }
+            if (p.getCreateAt() == null)
+                p.setCreateAt(new Date());
+            indices.add(item.getT1());
+            validos.add(p);
+        }
+
+        return Flux.fromIterable(invalidos)
+                .concatWith(productoService.insertarLote(validos)
+                        .flatMapIterable(errores -> {
+                            List<ResultadoLote> insertados = new ArrayList<>(validos.size());
+                            for (int i = 0; i < validos.size(); i++) {
+                                String error = errores.get(i);
+                                insertados.add(error == null
+                                        ? ResultadoLote.creado(indices.get(i), validos.get(i).getId())
+                                        : ResultadoLote.error(indices.get(i), validos.get(i).getId(), error));
+                            }
+                            return insertados;
+                        }));
+    }
+
+    /* Errors para la validación del objeto a crear, devuelve los mensajes por campo.
+    *  Además la categoria debe existir : se reemplaza por la registrada (id y nombre
+    *  de la BD), la consulta es al registro en memoria, no a Mongo */
+    // Del paquete : ValidacionBenchmark la mide con ValidacionProducto (src/jmh)
+    List<String> validar(Producto p){
+
+        Errors errors = new BeanPropertyBindingResult(p,Producto.class.getName());
+        validator.validate(p,errors);
+        List<String> errores = new ArrayList<>(errors.getFieldErrors().stream()
+                .map(fieldError -> "El campo "+fieldError.getField()+" "+fieldError.getDefaultMessage())
+                .toList());
+        if (errores.isEmpty())
+            canonizarCategoria(p).ifPresent(errores::add);
+        return errores;
+    }
+
+    // Deja la categoria canónica en el producto, o devuelve el error si no existe
+    private Optional<String> canonizarCategoria(Producto p){
+        if (p.getCategoria() == null)
+            return Optional.empty();
+        Categoria categoria = productoService.categoriaCanonica(p.getCategoria());
+        if (categoria == null)
+            return Optional.of("La categoria no existe");
+        p.setCategoria(categoria);
+        return Optional.empty();
+    }
+
+    /* PATCH : solo se modifican los campos enviados (los nulos se ignoran) con un
+    *  único findAndModify en Mongo, sin leer antes el documento. Responde con el
+    *  producto ya actualizado. PUT (editar) sigue siendo el reemplazo completo */
+    public Mono<ServerResponse> parchear(ServerRequest request){
+
+        return request.bodyToMono(Producto.class)
+                .flatMap(cambios -> {
+                    List<String> errores = validarCambios(cambios);
+                    if (errores.isEmpty())
+                        canonizarCategoria(cambios).ifPresent(errores::add);
+                    if (!errores.isEmpty())
+                        return ServerResponse.badRequest().body(BodyInserters.fromValue(errores));
+
+                    return productoService.patch(request.pathVariable("id"), cambios)
+                            .flatMap(p -> ServerResponse.ok()
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .body(BodyInserters.fromValue(p)))
+                            .switchIfEmpty(ServerResponse.notFound().build());
+                })
+                // Body vacio
+                .switchIfEmpty(ServerResponse.badRequest().build());
+    }
+
+    // En un PATCH solo se validan los campos que vienen en el body
+    private List<String> validarCambios(Producto cambios){
+
+        List<String> errores = new ArrayList<>();
+        if (cambios.getNombre() != null && cambios.getNombre().isBlank())
+            errores.add("El campo nombre no debe estar vacío");
+        if (cambios.getCategoria() != null) {
+            Errors errors = new BeanPropertyBindingResult(cambios.getCategoria(), "categoria");
+            validator.validate(cambios.getCategoria(), errors);
+            errors.getFieldErrors().forEach(fieldError ->
+                    errores.add("El campo categoria."+fieldError.getField()+" "+fieldError.getDefaultMessage()));
+        }
+        return errores;
+    }
+
     // Otra opción del metodo editar (que yo propuse)  (solo con faltMap  para la operación funcional)!!
 
     public Mono<ServerResponse> editarv2(ServerRequest request){
@@ -222,22 +576,42 @@ public class ProductoHandler {
                     */
                     return  productDB;
 
-                }).flatMap( p -> ServerResponse
-                        .created(URI.create("/api/v2/products".concat(p.getId())))
-                        .contentType(MediaType.APPLICATION_JSON)
-                        // .body(BodyInserters.fromValue(producto)) -> Por si solo devuelve un 'Mono<ServerResponse>' por lo que se debe aplanar todo con flatMap
-                        .body(productoService.save(p), Producto.class))
+                }).flatMap( p -> canonizarCategoria(p)
+                        .map(error -> ServerResponse.badRequest().body(BodyInserters.fromValue(List.of(error))))
+                        .orElseGet(() -> ServerResponse
+                                .created(URI.create("/api/v2/products".concat(p.getId())))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                // .body(BodyInserters.fromValue(producto)) -> Por si solo devuelve un 'Mono<ServerResponse>' por lo que se debe aplanar todo con flatMap
+                                .body(productoService.save(p), Producto.class)))
                 .switchIfEmpty(ServerResponse.notFound().build());
 
     }
 
     public Mono<ServerResponse> eliminar(ServerRequest request){
 
-        return productoService.findById(request.pathVariable("id"))
-                .flatMap( producto ->  productoService.delete(producto)
-                        // Se usa .then porque acá se devuelve un 'Mono<void>')
-                                .then(ServerResponse.noContent().build()))
-                .switchIfEmpty(ServerResponse.notFound().build());
+        /* Un solo viaje a Mongo : el resultado dice si existia (204) o no (404).
+        * La foto puede estar compartida con otros productos, si quedó sin
+        * referencias la borra el recolector del FotoStorage */
+        return productoService.deleteById(request.pathVariable("id"))
+                .flatMap( resultado -> resultado.getEliminados() == 0
+                        ? ServerResponse.notFound().build()
+                        : ServerResponse.noContent().build());
+
+    }
 
+    /* Borrado masivo : el body es un arreglo JSON de ids y se borran todos con
+    *  un solo delete '$in'. Responde con la cantidad borrada */
+    public Mono<ServerResponse> eliminarLote(ServerRequest request){
+
+        return request.bodyToMono(new ParameterizedTypeReference<List<String>>() {})
+                .filter(ids -> !ids.isEmpty())
+                .flatMap(ids -> ids.size() > maximoIdsEliminar
+                        ? ServerResponse.badRequest().body(BodyInserters.fromValue(
+                                "Se pueden borrar como máximo " + maximoIdsEliminar + " productos por petición"))
+                        : productoService.deleteAllById(ids)
+                                .flatMap(eliminados -> ServerResponse.ok()
+                                        .contentType(MediaType.APPLICATION_JSON)
+                                        .body(BodyInserters.fromValue(Collections.singletonMap("eliminados", eliminados)))))
+                .switchIfEmpty(ServerResponse.badRequest().build());
     }
 }
@@ -0,0 +1,53 @@
+package com.reactive.functionalendpoints.handler;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseCookie;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.function.UnaryOperator;
+
+/*Objetivo : ServerResponse que delega todo en otra y le agrega operadores a
+*            la escritura (writeTo). Los filtros la usan para actuar cuando la
+*            respuesta terminó de enviarse, no cuando el handler la devolvió :
+*            en un listado el Flux de Mongo se lee recién durante writeTo */
+public final class RespuestaDecorada implements ServerResponse {
+
+    private final ServerResponse respuesta;
+
+    private final UnaryOperator<Mono<Void>> escritura;
+
+    public RespuestaDecorada(ServerResponse respuesta, UnaryOperator<Mono<Void>> escritura) {
+        this.respuesta = respuesta;
+        this.escritura = escritura;
+    }
+
+    @Override
+    public HttpStatusCode statusCode() {
+        return respuesta.statusCode();
+    }
+
+    @Override
+    @Deprecated
+    public int rawStatusCode() {
+        return respuesta.statusCode().value();
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        return respuesta.headers();
+    }
+
+    @Override
+    public MultiValueMap<String, ResponseCookie> cookies() {
+        return respuesta.cookies();
+    }
+
+    @Override
+    public Mono<Void> writeTo(ServerWebExchange exchange, Context context) {
+        return escritura.apply(respuesta.writeTo(exchange, context));
+    }
+}
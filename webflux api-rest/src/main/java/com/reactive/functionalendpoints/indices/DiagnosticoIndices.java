@@ -0,0 +1,93 @@
+package com.reactive.functionalendpoints.indices;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*Objetivo : Modo diagnóstico (configuration.indices.diagnostico=true).
+*            Escucha los comandos que el driver envía a Mongo y, para cada
+*            forma de consulta nueva (colección + campos del filtro), ejecuta un
+*            'explain' en segundo plano. Si el plan ganador es un COLLSCAN se
+*            registra un warning con el filtro, para detectar consultas de los
+*            DAO/servicios que no tienen un indice que las cubra.
+*            Cada forma se revisa una sola vez, así el costo del explain no se
+*            paga en cada petición. No se usa en producción. */
+@Component
+@ConditionalOnProperty(name = "configuration.indices.diagnostico", havingValue = "true")
+public class DiagnosticoIndices implements CommandListener, MongoClientSettingsBuilderCustomizer {
+
+    private static final Logger log = LoggerFactory.getLogger(DiagnosticoIndices.class);
+
+    // Comando -> campo donde viene el filtro
+    private static final Map<String, String> FILTROS = Map.of(
+            "find", "filter",
+            "count", "query",
+            "findAndModify", "query");
+
+    private static final Set<String> COLECCIONES = Set.of("productos", "categorias");
+
+    // El template depende del cliente que este listener configura, se resuelve recien al usarlo
+    private final ObjectProvider<ReactiveMongoTemplate> mongoTemplate;
+
+    private final Set<String> revisadas = ConcurrentHashMap.newKeySet();
+
+    public DiagnosticoIndices(ObjectProvider<ReactiveMongoTemplate> mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void customize(MongoClientSettings.Builder builder) {
+        builder.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+
+        String campo = FILTROS.get(event.getCommandName());
+        if (campo == null)
+            return;
+
+        BsonDocument comando = event.getCommand();
+        BsonValue coleccion = comando.get(event.getCommandName());
+        BsonDocument filtro = comando.getDocument(campo, new BsonDocument());
+
+        // Sin filtro el recorrido completo es lo esperado, y por _id siempre hay indice
+        if (coleccion == null || !coleccion.isString() || !COLECCIONES.contains(coleccion.asString().getValue())
+                || filtro.isEmpty() || filtro.keySet().equals(Set.of("_id")))
+            return;
+
+        String nombreColeccion = coleccion.asString().getValue();
+        if (!revisadas.add(nombreColeccion + new TreeSet<>(filtro.keySet())))
+            return;
+
+        explicar(nombreColeccion, filtro.clone());
+    }
+
+    private void explicar(String coleccion, BsonDocument filtro) {
+        mongoTemplate.getObject().getCollection(coleccion)
+                .flatMap(col -> Mono.from(col.find(filtro).explain(Document.class)))
+                .subscribe(plan -> {
+                    // El COLLSCAN puede venir anidado en cualquier 'inputStage' del plan ganador
+                    Document planificador = plan.get("queryPlanner", Document.class);
+                    Object ganador = planificador == null ? null : planificador.get("winningPlan");
+                    if (ganador instanceof Document documento && documento.toJson().contains("\"COLLSCAN\""))
+                        log.warn("Consulta sin indice en '{}' : {}", coleccion, filtro.toJson());
+                }, error -> log.debug("No se pudo ejecutar explain en '{}'", coleccion, error));
+    }
+}
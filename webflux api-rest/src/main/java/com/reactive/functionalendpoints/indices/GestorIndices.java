@@ -0,0 +1,101 @@
+package com.reactive.functionalendpoints.indices;
+
+import com.mongodb.MongoCommandException;
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/*Objetivo : Declarar en un solo lugar los indices de 'productos' y 'categorias'
+*            y dejarlos tal cual al arrancar (reconciliar) :
+*            - Crea los que falten
+*            - Si uno existe con el mismo nombre pero otra definición, lo recrea
+*            - Borra los que tienen el prefijo 'idx_' y ya no están declarados
+*            Sin estos indices findByNombre, obtenerPorNombre y los filtros por
+*            categoria/precio/fecha recorren toda la colección. */
+@Component
+public class GestorIndices {
+
+    private static final Logger log = LoggerFactory.getLogger(GestorIndices.class);
+
+    // Solo se administran (y se pueden borrar) los indices con este prefijo
+    static final String PREFIJO = "idx_";
+
+    // Codigos de Mongo cuando el indice existe con otras opciones o llaves
+    private static final Set<Integer> CONFLICTO = Set.of(85, 86);
+
+    private static final Map<Class<?>, List<Index>> DECLARADOS = Map.of(
+            Categoria.class, List.of(
+                    new Index().on("nombre", Sort.Direction.ASC).unique().named(PREFIJO + "nombre")),
+            Producto.class, List.of(
+                    new Index().on("nombre", Sort.Direction.ASC).named(PREFIJO + "nombre"),
+                    new Index().on("categoria.id", Sort.Direction.ASC).named(PREFIJO + "categoria"),
+                    new Index().on("categoria.id", Sort.Direction.ASC).on("precio", Sort.Direction.ASC)
+                            .named(PREFIJO + "categoria_precio"),
+                    new Index().on("createAt", Sort.Direction.ASC).named(PREFIJO + "createAt"),
+                    // Lo usa el recolector de fotos para saber si un archivo sigue referenciado
+                    new Index().on("foto", Sort.Direction.ASC).sparse().named(PREFIJO + "foto")));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public GestorIndices(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public Mono<Void> reconciliar() {
+        return Flux.fromIterable(DECLARADOS.entrySet())
+                .concatMap(entrada -> reconciliar(mongoTemplate.indexOps(entrada.getKey()), entrada.getValue())
+                        .doOnSuccess(v -> log.info("Indices de {} reconciliados", entrada.getKey().getSimpleName())))
+                .then();
+    }
+
+    private Mono<Void> reconciliar(ReactiveIndexOperations operaciones, List<Index> indices) {
+
+        Set<String> nombres = indices.stream()
+                .map(indice -> indice.getIndexOptions().getString("name"))
+                .collect(Collectors.toSet());
+
+        Flux<String> creados = Flux.fromIterable(indices)
+                .concatMap(indice -> crear(operaciones, indice));
+
+        Flux<String> sobrantes = operaciones.getIndexInfo()
+                .map(IndexInfo::getName)
+                .filter(nombre -> nombre.startsWith(PREFIJO) && !nombres.contains(nombre))
+                .concatMap(nombre -> operaciones.dropIndex(nombre)
+                        .doOnSuccess(v -> log.info("Indice obsoleto {} eliminado", nombre))
+                        .thenReturn(nombre));
+
+        return creados.thenMany(sobrantes).then();
+    }
+
+    private Mono<String> crear(ReactiveIndexOperations operaciones, Index indice) {
+        String nombre = indice.getIndexOptions().getString("name");
+        return operaciones.ensureIndex(indice)
+                .onErrorResume(GestorIndices::esConflicto, error -> {
+                    log.warn("Indice {} con otra definición, se vuelve a crear", nombre);
+                    return operaciones.dropIndex(nombre).then(operaciones.ensureIndex(indice));
+                });
+    }
+
+    // Spring traduce la excepción del driver, el codigo queda en la causa
+    private static boolean esConflicto(Throwable error) {
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof MongoCommandException comando)
+                return CONFLICTO.contains(comando.getErrorCode());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package com.reactive.functionalendpoints.limites;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*Objetivo : Token bucket de un cliente con GCRA (generic cell rate algorithm).
+*            En lugar de contar tokens se guarda un solo instante : el 'tat'
+*            (theoretical arrival time), cuando la cubeta vuelve a estar llena.
+*            - Cada petición adelanta el tat un 'intervalo' (1 / tasa)
+*            - Se admite mientras el tat no quede más de 'rafaga' intervalos
+*              adelante del reloj
+*            Un AtomicLong y un compareAndSet : sin locks ni hilos de recarga */
+final class CubetaTokens {
+
+    private final AtomicLong tat;
+
+    CubetaTokens(long ahora) {
+        this.tat = new AtomicLong(ahora);
+    }
+
+    // 0 si se admite, si no los nanosegundos a esperar hasta que haya un token
+    long intentar(long ahora, long intervalo, long tolerancia) {
+        while (true) {
+            long actual = tat.get();
+            long nuevo = Math.max(actual, ahora) + intervalo;
+            long exceso = nuevo - ahora - tolerancia;
+            if (exceso > 0)
+                return exceso;
+            if (tat.compareAndSet(actual, nuevo))
+                return 0;
+        }
+    }
+}
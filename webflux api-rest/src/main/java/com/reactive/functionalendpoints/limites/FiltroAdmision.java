@@ -0,0 +1,222 @@
+package com.reactive.functionalendpoints.limites;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactive.functionalendpoints.handler.RespuestaDecorada;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.stream.Collectors;
+
+/*Objetivo : Control de admisión antes de los handlers, para que una ráfaga
+*            (listados, subidas) no agote el pool de conexiones de Mongo y tire
+*            todas las rutas. Dos límites, con presupuestos distintos para
+*            LECTURA, ESCRITURA y PESADA (ver Presupuesto) :
+*            - Tasa por cliente : token bucket (CubetaTokens) por API key (header
+*              'configuration.limites.header') solo si es una de las claves conocidas
+*              ('configuration.limites.claves'); si no, por IP. Una clave inventada
+*              no cuenta : rotarla en cada petición no evita el límite de la IP ni
+*              llena las cubetas de claves distintas. Excedido -> 429
+*            - Concurrencia por ruta : peticiones en curso por patrón de ruta, se
+*              liberan cuando la respuesta terminó de escribirse. Excedido -> 503.
+*              Como WebFilter libera además el lugar al terminar el intercambio :
+*              una respuesta cuyo writeTo nunca se suscribe no lo deja tomado
+*            Ambas respuestas llevan Retry-After (segundos).
+*            Sin locks : un compareAndSet por cubeta y un contador atómico por ruta.
+*            Las cubetas viven en Caffeine y se descartan al quedar llenas
+*            (olvidarlas es lo mismo que recordarlas llenas), así la memoria
+*            queda acotada aunque lleguen muchos clientes distintos.
+*            El feed SSE /changes queda fuera del límite de concurrencia : cada
+*            suscriptor ocupa la conexión todo el tiempo sin usar Mongo */
+@Component
+public class FiltroAdmision implements HandlerFilterFunction<ServerResponse, ServerResponse>, WebFilter {
+
+    private static final String SIN_CONCURRENCIA = "/api/v2/products/changes";
+
+    // Atributo del intercambio con el Permiso tomado por la petición
+    private static final String PERMISO = FiltroAdmision.class.getName() + ".permiso";
+
+    private final boolean habilitado;
+
+    private final String header;
+
+    private final Set<String> claves;
+
+    private final Map<Presupuesto, Limite> limites = new EnumMap<>(Presupuesto.class);
+
+    // patrón de ruta -> peticiones en curso (las claves son las rutas, no crecen)
+    private final Map<String, AtomicInteger> enCurso = new ConcurrentHashMap<>();
+
+    public FiltroAdmision(@Value("${configuration.limites.enabled:true}") boolean habilitado,
+                          @Value("${configuration.limites.header:X-API-Key}") String header,
+                          @Value("${configuration.limites.claves:}") String claves,
+                          @Value("${configuration.limites.max-clientes:100000}") long maximoClientes,
+                          @Value("${configuration.limites.lectura.tasa:100}") double tasaLectura,
+                          @Value("${configuration.limites.lectura.rafaga:200}") int rafagaLectura,
+                          @Value("${configuration.limites.lectura.concurrencia:256}") int concurrenciaLectura,
+                          @Value("${configuration.limites.escritura.tasa:20}") double tasaEscritura,
+                          @Value("${configuration.limites.escritura.rafaga:40}") int rafagaEscritura,
+                          @Value("${configuration.limites.escritura.concurrencia:64}") int concurrenciaEscritura,
+                          @Value("${configuration.limites.pesada.tasa:2}") double tasaPesada,
+                          @Value("${configuration.limites.pesada.rafaga:5}") int rafagaPesada,
+                          @Value("${configuration.limites.pesada.concurrencia:8}") int concurrenciaPesada) {
+        this.habilitado = habilitado;
+        this.header = header;
+        this.claves = Arrays.stream(claves.split(","))
+                .map(String::trim)
+                .filter(clave -> !clave.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+        limites.put(Presupuesto.LECTURA, new Limite(tasaLectura, rafagaLectura, concurrenciaLectura, maximoClientes));
+        limites.put(Presupuesto.ESCRITURA, new Limite(tasaEscritura, rafagaEscritura, concurrenciaEscritura, maximoClientes));
+        limites.put(Presupuesto.PESADA, new Limite(tasaPesada, rafagaPesada, concurrenciaPesada, maximoClientes));
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        if (!habilitado)
+            return next.handle(request);
+
+        PathPattern patron = (PathPattern) request.attribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE).orElse(null);
+        String ruta = patron != null ? patron.getPatternString() : request.path();
+        Limite limite = limites.get(Presupuesto.de(request.method(), ruta));
+
+        long espera = limite.consumir(cliente(request), System.nanoTime());
+        if (espera > 0) {
+            long reintentar = segundos(espera);
+            return rechazar(HttpStatus.TOO_MANY_REQUESTS, reintentar, "Demasiadas peticiones, reintentar en " + reintentar + " s");
+        }
+
+        if (ruta.equals(SIN_CONCURRENCIA))
+            return next.handle(request);
+
+        AtomicInteger contador = enCurso.computeIfAbsent(ruta, r -> new AtomicInteger());
+        if (contador.incrementAndGet() > limite.concurrencia) {
+            contador.decrementAndGet();
+            return rechazar(HttpStatus.SERVICE_UNAVAILABLE, 1, "Servicio saturado, reintentar en 1 s");
+        }
+
+        Permiso permiso = new Permiso(contador);
+        request.exchange().getAttributes().put(PERMISO, permiso);
+        return next.handle(request)
+                // Se libera cuando la respuesta terminó de escribirse (un listado usa Mongo hasta el final)
+                .<ServerResponse>map(respuesta -> new RespuestaDecorada(respuesta,
+                        escritura -> escritura.doFinally(senal -> permiso.liberar())))
+                .switchIfEmpty(Mono.fromRunnable(permiso::liberar))
+                .doOnError(error -> permiso.liberar())
+                .doOnCancel(permiso::liberar);
+    }
+
+    // Alrededor de todo el intercambio : el lugar que siga tomado al terminar se libera aquí
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!habilitado)
+            return chain.filter(exchange);
+
+        return chain.filter(exchange)
+                .doFinally(senal -> {
+                    Permiso permiso = exchange.getAttribute(PERMISO);
+                    if (permiso != null)
+                        permiso.liberar();
+                });
+    }
+
+    // Peticiones en curso por ruta (para diagnóstico y pruebas)
+    public int enCurso(String ruta) {
+        AtomicInteger contador = enCurso.get(ruta);
+        return contador == null ? 0 : contador.get();
+    }
+
+    /* API key si es conocida, si no la IP (los prefijos evitan que una clave coincida con una IP).
+    * Detrás de un proxy la IP real requiere server.forward-headers-strategy */
+    private String cliente(ServerRequest request) {
+        String clave = request.headers().firstHeader(header);
+        if (clave != null && claves.contains(clave))
+            return "clave:" + clave;
+        return "ip:" + request.remoteAddress()
+                .map(InetSocketAddress::getAddress)
+                .map(InetAddress::getHostAddress)
+                .orElse("desconocido");
+    }
+
+    private static Mono<ServerResponse> rechazar(HttpStatus estado, long reintentar, String mensaje) {
+        return ServerResponse.status(estado)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(reintentar))
+                .body(BodyInserters.fromValue(List.of(mensaje)));
+    }
+
+    // Retry-After va en segundos enteros, redondeando hacia arriba
+    private static long segundos(long nanos) {
+        return Math.max(1, (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static final class Limite {
+
+        private final long intervalo;
+
+        private final long tolerancia;
+
+        private final int concurrencia;
+
+        private final Cache<String, CubetaTokens> cubetas;
+
+        private Limite(double tasa, int rafaga, int concurrencia, long maximoClientes) {
+            this.intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / tasa);
+            this.tolerancia = intervalo * rafaga;
+            this.concurrencia = concurrencia;
+            // Sin actividad durante 'tolerancia' la cubeta ya está llena : se puede olvidar
+            this.cubetas = Caffeine.newBuilder()
+                    .maximumSize(maximoClientes)
+                    .expireAfterAccess(Duration.ofNanos(Math.max(tolerancia, TimeUnit.SECONDS.toNanos(1))))
+                    .build();
+        }
+
+        private long consumir(String cliente, long ahora) {
+            return cubetas.get(cliente, c -> new CubetaTokens(ahora)).intentar(ahora, intervalo, tolerancia);
+        }
+    }
+
+    // Libera el lugar de concurrencia una sola vez, termine como termine la petición
+    private static final class Permiso {
+
+        private static final AtomicIntegerFieldUpdater<Permiso> LIBERADO =
+                AtomicIntegerFieldUpdater.newUpdater(Permiso.class, "liberado");
+
+        private final AtomicInteger contador;
+
+        private volatile int liberado;
+
+        private Permiso(AtomicInteger contador) {
+            this.contador = contador;
+        }
+
+        private void liberar() {
+            if (LIBERADO.compareAndSet(this, 0, 1))
+                contador.decrementAndGet();
+        }
+    }
+}
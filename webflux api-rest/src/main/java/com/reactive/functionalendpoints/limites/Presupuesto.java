@@ -0,0 +1,30 @@
+package com.reactive.functionalendpoints.limites;
+
+import org.springframework.http.HttpMethod;
+
+import java.util.Set;
+
+/*Objetivo : Clases de rutas con presupuestos separados, así una ráfaga de
+*            subidas no consume lo que necesitan las lecturas baratas.
+*            - PESADA : suben archivos o escriben muchos documentos
+*            - ESCRITURA : el resto de POST/PUT/PATCH/DELETE
+*            - LECTURA : GET */
+enum Presupuesto {
+
+    LECTURA, ESCRITURA, PESADA;
+
+    // Patrones de RouterFunctionConfig : POST con archivo o lote y DELETE por lote
+    private static final Set<String> POST_PESADAS = Set.of(
+            "/api/v2/products/upload/{id}", "/api/v2/products/crear", "/api/v2/products/batch");
+
+    private static final String DELETE_LOTE = "/api/v2/products";
+
+    static Presupuesto de(HttpMethod metodo, String patron) {
+        if (HttpMethod.GET.equals(metodo) || HttpMethod.HEAD.equals(metodo))
+            return LECTURA;
+        if (HttpMethod.POST.equals(metodo) && POST_PESADAS.contains(patron)
+                || HttpMethod.DELETE.equals(metodo) && DELETE_LOTE.equals(patron))
+            return PESADA;
+        return ESCRITURA;
+    }
+}
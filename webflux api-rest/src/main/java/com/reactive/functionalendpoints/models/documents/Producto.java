@@ -8,6 +8,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.util.Date;
+import java.util.Map;
 
 /*Objetivo :  Mapeamos la colección de la bd de productos
 *             por tal motivo usamos la API de mongo para spring.
@@ -19,7 +20,7 @@ import java.util.Date;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Producto {
 
    @Id // Es una llave
@@ -39,6 +40,9 @@ public class Producto {
 
     private String foto;
 
+    // Variantes redimensionadas de la foto (nombre de variante -> archivo), las genera GeneradorVariantes
+    private Map<String, String> variantes;
+
     public Producto(String nombre, Double precio) {
         super();
         this.nombre = nombre;
@@ -0,0 +1,33 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/*Objetivo : Un evento del feed de cambios de productos.
+*            - 'id' es el identificador del evento (el cliente lo reenvia en
+*              Last-Event-ID para retomar desde ahí)
+*            - 'producto' es el documento después del cambio, null si se eliminó
+*            - RESYNC indica que el cliente perdió eventos y debe recargar el
+*              listado completo antes de volver a suscribirse */
+@Getter
+@AllArgsConstructor
+public class CambioProducto {
+
+    public static final String CREADO = "CREADO";
+    public static final String ACTUALIZADO = "ACTUALIZADO";
+    public static final String ELIMINADO = "ELIMINADO";
+    public static final String RESYNC = "RESYNC";
+
+    private final String id;
+
+    private final String tipo;
+
+    private final String productoId;
+
+    private final Producto producto;
+
+    private final Instant fecha;
+}
@@ -0,0 +1,24 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*Objetivo : Cantidad de productos y precios (mínimo, máximo y promedio)
+*            de una categoria. 'categoriaId' es null para los productos
+*            que no tienen categoria. */
+@Getter
+@AllArgsConstructor
+public class EstadisticaCategoria {
+
+    private final String categoriaId;
+
+    private final String nombre;
+
+    private final long cantidad;
+
+    private final Double precioMinimo;
+
+    private final Double precioMaximo;
+
+    private final Double precioPromedio;
+}
@@ -0,0 +1,20 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/*Objetivo : Una pagina del listado paginado por llave (keyset).
+*            'siguiente' es el cursor opaco que el cliente debe
+*            enviar en 'after' para pedir la proxima pagina, es null
+*            cuando ya no hay más productos. */
+@Getter
+@AllArgsConstructor
+public class PaginaProductos {
+
+    private final List<Producto> productos;
+
+    private final String siguiente;
+}
@@ -0,0 +1,35 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/*Objetivo : Datos de una petición que superó el umbral de lentitud.
+*            - 'ruta' es el patrón del RouterFunction (/api/v2/products/{id})
+*            - 'parametros' son los de la query y las variables del path
+*            - 'tamanoCuerpo' sale de Content-Length, -1 si no vino
+*            - 'mongoMs' es el tiempo sumado de los comandos a Mongo de la
+*              petición (si corren en paralelo puede superar 'duracionMs') */
+@Getter
+@AllArgsConstructor
+public class PeticionLenta {
+
+    private final Instant fecha;
+
+    private final String metodo;
+
+    private final String ruta;
+
+    private final Map<String, List<String>> parametros;
+
+    private final long tamanoCuerpo;
+
+    private final int estado;
+
+    private final double duracionMs;
+
+    private final double mongoMs;
+}
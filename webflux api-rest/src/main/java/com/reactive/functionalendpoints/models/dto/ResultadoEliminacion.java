@@ -0,0 +1,16 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/*Objetivo : Resultado de borrar un producto por id en un solo viaje a Mongo.
+*            'eliminados' es 0 si el producto no existia y 'foto' es el nombre
+*            del archivo que tenia asociado (si tenia), para poder limpiarlo. */
+@Getter
+@AllArgsConstructor
+public class ResultadoEliminacion {
+
+    private final long eliminados;
+
+    private final String foto;
+}
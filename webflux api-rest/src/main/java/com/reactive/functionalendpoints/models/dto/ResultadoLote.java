@@ -0,0 +1,42 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/*Objetivo : Resultado de un elemento de la carga masiva (POST /batch).
+*            'indice' es la posición del producto en el body recibido,
+*            así el cliente sabe exactamente que filas fallaron. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoLote {
+
+    public static final String CREADO = "CREADO";
+    public static final String INVALIDO = "INVALIDO";
+    public static final String ERROR = "ERROR";
+
+    private long indice;
+
+    private String id;
+
+    private String estado;
+
+    private List<String> errores;
+
+    public static ResultadoLote creado(long indice, String id) {
+        return new ResultadoLote(indice, id, CREADO, List.of());
+    }
+
+    public static ResultadoLote invalido(long indice, List<String> errores) {
+        return new ResultadoLote(indice, null, INVALIDO, errores);
+    }
+
+    public static ResultadoLote error(long indice, String id, String mensaje) {
+        return new ResultadoLote(indice, id, ERROR, List.of(mensaje));
+    }
+}
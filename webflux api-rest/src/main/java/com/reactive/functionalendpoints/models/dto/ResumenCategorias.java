@@ -0,0 +1,19 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.List;
+
+/*Objetivo : Foto (snapshot) de las estadisticas por categoria.
+*            'actualizado' es el momento en que se calculó, para que el
+*            cliente sepa que tan frescos son los datos. */
+@Getter
+@AllArgsConstructor
+public class ResumenCategorias {
+
+    private final Instant actualizado;
+
+    private final List<EstadisticaCategoria> categorias;
+}
@@ -0,0 +1,14 @@
+package com.reactive.functionalendpoints.models.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Objetivo : Una opción del autocompletado de nombres, sale directo del indice en memoria
+@Getter
+@AllArgsConstructor
+public class Sugerencia {
+
+    private final String id;
+
+    private final String nombre;
+}
@@ -0,0 +1,103 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.CambioProducto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/*Objetivo : Bus en memoria de los cambios de productos (crear, editar, eliminar)
+*            que alimenta el feed SSE /api/v2/products/changes.
+*            - Los últimos 'buffer-size' eventos quedan en un buffer circular, así
+*              un cliente que se reconecta con Last-Event-ID recibe lo que se perdió
+*            - Cada suscriptor lleva su propio cursor sobre el buffer. El bus solo le
+*              avisa que hay eventos nuevos (onBackpressureLatest : a lo sumo un aviso
+*              pendiente), nunca se acumulan eventos por suscriptor
+*            - Si un cliente lento queda más atrás que el tamaño del buffer, o pide un
+*              id que no existe (ej. de antes de un reinicio), recibe RESYNC y se cierra
+*              su stream : debe recargar el listado y volver a suscribirse */
+@Component
+public class BusCambios {
+
+    // Los ids de evento incluyen el arranque para no confundir ids de un proceso anterior
+    private final String arranque = Long.toString(System.currentTimeMillis(), 36);
+
+    private final CambioProducto[] buffer;
+
+    // Último número de secuencia publicado (protegido por 'this')
+    private long ultimo;
+
+    private final Sinks.Many<Long> avisos = Sinks.many().multicast().directBestEffort();
+
+    // Revisión periódica del cursor, cubre un aviso que llegue justo durante la suscripción
+    private final Duration revision;
+
+    public BusCambios(@Value("${configuration.changes.buffer-size:1024}") int tamanoBuffer,
+                      @Value("${configuration.changes.revision:PT5S}") Duration revision) {
+        this.buffer = new CambioProducto[tamanoBuffer];
+        this.revision = revision;
+    }
+
+    public synchronized void publicar(String tipo, String productoId, Producto producto) {
+        long secuencia = ++ultimo;
+        buffer[(int) (secuencia % buffer.length)] =
+                new CambioProducto(id(secuencia), tipo, productoId, producto, Instant.now());
+        // Dentro del lock : las emisiones al sink quedan serializadas
+        avisos.tryEmitNext(secuencia);
+    }
+
+    /* Eventos posteriores a 'ultimoEventoId' (null = solo los nuevos desde ahora).
+    * Termina después de emitir un RESYNC */
+    public Flux<CambioProducto> suscribir(String ultimoEventoId) {
+        return Flux.defer(() -> {
+            long[] cursor = {ultimoEventoId == null ? secuenciaActual() : secuencia(ultimoEventoId)};
+
+            // merge se suscribe primero a los avisos y luego al intervalo, que emite de inmediato
+            return Flux.merge(avisos.asFlux(), Flux.interval(Duration.ZERO, revision))
+                    .onBackpressureLatest()
+                    .publishOn(Schedulers.parallel(), 1)
+                    .concatMapIterable(aviso -> pendientes(cursor), 1)
+                    .takeUntil(cambio -> CambioProducto.RESYNC.equals(cambio.getTipo()));
+        });
+    }
+
+    private synchronized long secuenciaActual() {
+        return ultimo;
+    }
+
+    // Avanza el cursor del suscriptor y devuelve lo que le falta ver
+    private synchronized List<CambioProducto> pendientes(long[] cursor) {
+        long desde = cursor[0];
+        if (desde < 0 || desde > ultimo || ultimo - desde > buffer.length)
+            return List.of(new CambioProducto(id(ultimo), CambioProducto.RESYNC, null, null, Instant.now()));
+
+        List<CambioProducto> resultado = new ArrayList<>((int) (ultimo - desde));
+        for (long secuencia = desde + 1; secuencia <= ultimo; secuencia++)
+            resultado.add(buffer[(int) (secuencia % buffer.length)]);
+        cursor[0] = ultimo;
+        return resultado;
+    }
+
+    private String id(long secuencia) {
+        return arranque + "-" + secuencia;
+    }
+
+    // -1 si el id no es de este proceso o no se puede leer (se responde RESYNC)
+    private long secuencia(String id) {
+        int separador = id.lastIndexOf('-');
+        if (separador < 0 || !id.substring(0, separador).equals(arranque))
+            return -1;
+        try {
+            return Long.parseLong(id.substring(separador + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/*Objetivo : Proyección de campos (?fields=id,nombre,precio).
+*            - Se traduce a una proyección de Mongo, así el servidor de BD solo
+*              envia (y el driver solo decodifica) los campos pedidos
+*            - La respuesta se arma con un Map con esos mismos campos en el
+*              orden pedido, Jackson no serializa el resto del Producto
+*            Sin 'fields' se sigue devolviendo el documento completo. */
+public class CamposProducto {
+
+    // Campos que se pueden pedir y como se leen del Producto
+    private static final Map<String, Function<Producto, Object>> DISPONIBLES = Map.of(
+            "id", Producto::getId,
+            "nombre", Producto::getNombre,
+            "precio", Producto::getPrecio,
+            "createAt", Producto::getCreateAt,
+            "categoria", Producto::getCategoria,
+            "foto", Producto::getFoto,
+            "variantes", Producto::getVariantes);
+
+    private final Set<String> campos;
+
+    private CamposProducto(Set<String> campos) {
+        this.campos = campos;
+    }
+
+    // null o vacio = documento completo (devuelve null)
+    public static CamposProducto parsear(String fields) {
+        if (fields == null || fields.isBlank())
+            return null;
+
+        Set<String> campos = new LinkedHashSet<>();
+        for (String campo : fields.split(",")) {
+            String nombre = campo.trim();
+            if (nombre.isEmpty())
+                continue;
+            if (!DISPONIBLES.containsKey(nombre))
+                throw new IllegalArgumentException("Campo desconocido : " + nombre + ", disponibles " + DISPONIBLES.keySet());
+            campos.add(nombre);
+        }
+        if (campos.isEmpty())
+            throw new IllegalArgumentException("El parametro fields no tiene campos");
+        return new CamposProducto(campos);
+    }
+
+    public Set<String> getCampos() {
+        return campos;
+    }
+
+    /* Agrega la proyección a la consulta. 'extras' son campos que la consulta
+    * necesita aunque no se pidan (ej. el campo de orden para armar el cursor) */
+    public Query aplicar(Query query, String... extras) {
+        campos.forEach(campo -> query.fields().include(campo));
+        Arrays.stream(extras).filter(extra -> !campos.contains(extra))
+                .forEach(extra -> query.fields().include(extra));
+        return query;
+    }
+
+    public Map<String, Object> recortar(Producto producto) {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        campos.forEach(campo -> resultado.put(campo, DISPONIBLES.get(campo).apply(producto)));
+        return resultado;
+    }
+
+    public List<Map<String, Object>> recortar(List<Producto> productos) {
+        return productos.stream().map(this::recortar).toList();
+    }
+}
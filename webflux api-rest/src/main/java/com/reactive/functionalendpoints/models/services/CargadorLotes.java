@@ -0,0 +1,123 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.dao.ProductoDao;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/*Objetivo : Agrupa los findById de distintas peticiones en lotes (al estilo
+*            DataLoader). Los ids que llegan dentro de una 'ventana' corta (o hasta
+*            juntar 'max-size') se resuelven con una sola consulta
+*            { _id : { $in : [...] } } y cada lectura recibe su producto, o vacio
+*            si el id no existe.
+*            - Opcional (enabled=false por defecto) : con poca concurrencia solo
+*              agrega la espera de la ventana
+*            - Los pedidos esperan en una cola acotada; si está llena la lectura va
+*              directo a Mongo en lugar de acumular memoria
+*            - Una consulta de lote no pertenece a una sola petición : su tiempo en
+*              Mongo no se le atribuye a ninguna (MedicionPeticion) */
+@Component
+public class CargadorLotes {
+
+    private static final Logger log = LoggerFactory.getLogger(CargadorLotes.class);
+
+    private final ProductoDao productoDao;
+
+    private final boolean habilitado;
+
+    private final Sinks.Many<Pedido> pedidos;
+
+    private final Disposable procesamiento;
+
+    private final LongAdder lotes = new LongAdder();
+
+    private final LongAdder agrupados = new LongAdder();
+
+    public CargadorLotes(ProductoDao productoDao,
+                         @Value("${configuration.lotes.enabled:false}") boolean habilitado,
+                         @Value("${configuration.lotes.ventana:500us}") Duration ventana,
+                         @Value("${configuration.lotes.max-size:100}") int tamanoMaximo,
+                         @Value("${configuration.lotes.concurrency:4}") int concurrencia,
+                         @Value("${configuration.lotes.queue-capacity:4096}") int capacidadCola) {
+        this.productoDao = productoDao;
+        this.habilitado = habilitado;
+        this.pedidos = Sinks.many().unicast().onBackpressureBuffer(Queues.<Pedido>get(capacidadCola).get());
+        // flatMap con concurrencia acotada : como mucho 'concurrency' consultas de lote a la vez
+        this.procesamiento = !habilitado ? null : pedidos.asFlux()
+                // fairBackpressure : si las consultas en curso no dan abasto el lote espera en vez de fallar
+                .bufferTimeout(tamanoMaximo, ventana, true)
+                .flatMap(this::resolver, concurrencia)
+                .subscribe();
+    }
+
+    public Mono<Producto> cargar(String id) {
+        if (!habilitado)
+            return productoDao.findById(id);
+
+        return Mono.defer(() -> {
+            Pedido pedido = new Pedido(id, new CompletableFuture<>());
+            Sinks.EmitResult resultado;
+            // El sink unicast no admite emisiones concurrentes
+            synchronized (pedidos) {
+                resultado = pedidos.tryEmitNext(pedido);
+            }
+            if (resultado.isFailure())
+                return productoDao.findById(id);
+            return Mono.fromFuture(pedido.producto());
+        });
+    }
+
+    public Map<String, Object> estadisticas() {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("habilitado", habilitado);
+        resultado.put("lotes", lotes.sum());
+        resultado.put("lecturasAgrupadas", agrupados.sum());
+        return resultado;
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (procesamiento != null)
+            procesamiento.dispose();
+    }
+
+    private Mono<Void> resolver(List<Pedido> lote) {
+        lotes.increment();
+        agrupados.add(lote.size());
+
+        Set<String> ids = new LinkedHashSet<>();
+        lote.forEach(pedido -> ids.add(pedido.id()));
+        return productoDao.findAllById(ids)
+                .collectMap(Producto::getId)
+                .doOnNext(encontrados -> lote.forEach(pedido -> {
+                    Producto producto = encontrados.get(pedido.id());
+                    // null = el id no existe, la lectura termina vacia. Copia : el mismo id puede repetirse en el lote
+                    pedido.producto().complete(producto == null ? null : ProductoCache.copia(producto));
+                }))
+                .onErrorResume(error -> {
+                    log.warn("Fallo la consulta de un lote de " + ids.size() + " productos", error);
+                    lote.forEach(pedido -> pedido.producto().completeExceptionally(error));
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private record Pedido(String id, CompletableFuture<Producto> producto) {
+    }
+}
@@ -0,0 +1,128 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Set;
+
+/*Objetivo : Cursor de la paginación por llave (keyset) de productos.
+*            Guarda el campo y la dirección de orden, el último valor visto
+*            de ese campo y el último _id visto. Con eso la siguiente página
+*            se pide con un filtro '(campo, _id) > (valor, id)' que usa el
+*            índice, por lo que cuesta lo mismo sin importar la profundidad
+*            (no hay skip/offset).
+*
+*            Se codifica en Base64 url-safe para que el cliente lo trate
+*            como una caja negra. */
+@Getter
+@AllArgsConstructor
+public class CursorProductos {
+
+    public static final String CAMPO_ID = "id";
+
+    private static final Set<String> CAMPOS = Set.of(CAMPO_ID, "createAt", "precio", "nombre");
+
+    private static final String SEPARADOR = "|";
+
+    private final String campo;
+
+    private final Sort.Direction direccion;
+
+    // Date (createAt), Double (precio), String (nombre) o null si el documento no tiene el campo
+    private final Object valor;
+
+    private final String ultimoId;
+
+    public static void validarCampo(String campo) {
+        if (!CAMPOS.contains(campo))
+            throw new IllegalArgumentException("No se puede ordenar por el campo " + campo);
+    }
+
+    // Orden estable : siempre se desempata por _id
+    public static Sort orden(String campo, Sort.Direction direccion) {
+        Sort porId = Sort.by(direccion, CAMPO_ID);
+        return CAMPO_ID.equals(campo) ? porId : Sort.by(direccion, campo).and(porId);
+    }
+
+    // Construye el cursor a partir del último producto de la página
+    public static CursorProductos desde(Producto producto, String campo, Sort.Direction direccion) {
+        Object valor = switch (campo) {
+            case "createAt" -> producto.getCreateAt();
+            case "precio" -> producto.getPrecio();
+            case "nombre" -> producto.getNombre();
+            default -> null;
+        };
+        return new CursorProductos(campo, direccion, valor, producto.getId());
+    }
+
+    public String codificar() {
+        String valorTexto = "";
+        if (valor instanceof Date fecha)
+            valorTexto = String.valueOf(fecha.getTime());
+        else if (valor != null)
+            valorTexto = valor.toString();
+
+        String plano = String.join(SEPARADOR, campo, direccion.name(), valorTexto, ultimoId);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorProductos decodificar(String token) {
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            /* campo|DIR|valor|id : el valor va entre el segundo y el último separador
+            * porque un nombre puede contener '|' (el id y el campo nunca) */
+            int primero = plano.indexOf(SEPARADOR);
+            int segundo = plano.indexOf(SEPARADOR, primero + 1);
+            int ultimo = plano.lastIndexOf(SEPARADOR);
+            if (primero < 0 || segundo < 0 || ultimo <= segundo || ultimo == plano.length() - 1)
+                throw new IllegalArgumentException("Cursor inválido");
+            String[] partes = {plano.substring(0, primero), plano.substring(primero + 1, segundo),
+                    plano.substring(segundo + 1, ultimo), plano.substring(ultimo + 1)};
+
+            String campo = partes[0];
+            validarCampo(campo);
+            Object valor = null;
+            if (!partes[2].isEmpty()) {
+                valor = switch (campo) {
+                    case "createAt" -> new Date(Long.parseLong(partes[2]));
+                    case "precio" -> Double.valueOf(partes[2]);
+                    case "nombre" -> partes[2];
+                    default -> null;
+                };
+            }
+            return new CursorProductos(campo, Sort.Direction.valueOf(partes[1]), valor, partes[3]);
+        } catch (IllegalArgumentException e) {
+            // Incluye los errores de Base64 y NumberFormatException
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    /* Filtro de la siguiente página. Para 'asc' :
+     *   campo > valor  ó  (campo == valor y _id > ultimoId)
+     * Mongo ordena los nulos como el menor valor, por eso se tratan aparte */
+    public Criteria criterio() {
+        boolean asc = direccion.isAscending();
+        Object id = ObjectId.isValid(ultimoId) ? new ObjectId(ultimoId) : ultimoId;
+        Criteria porId = asc ? Criteria.where(CAMPO_ID).gt(id) : Criteria.where(CAMPO_ID).lt(id);
+
+        if (CAMPO_ID.equals(campo))
+            return porId;
+
+        if (valor == null) {
+            Criteria empate = new Criteria().andOperator(Criteria.where(campo).is(null), porId);
+            return asc ? new Criteria().orOperator(empate, Criteria.where(campo).ne(null)) : empate;
+        }
+
+        Criteria siguiente = asc ? Criteria.where(campo).gt(valor) : Criteria.where(campo).lt(valor);
+        Criteria empate = new Criteria().andOperator(Criteria.where(campo).is(valor), porId);
+        return asc ? new Criteria().orOperator(siguiente, empate)
+                : new Criteria().orOperator(siguiente, empate, Criteria.where(campo).is(null));
+    }
+}
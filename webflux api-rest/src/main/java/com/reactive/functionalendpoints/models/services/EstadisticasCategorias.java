@@ -0,0 +1,104 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.EstadisticaCategoria;
+import com.reactive.functionalendpoints.models.dto.ResumenCategorias;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*Objetivo : Estadisticas por categoria (cantidad y precio min/max/promedio)
+*            materializadas en memoria.
+*            - Se calculan con una agregación de Mongo agrupada por categoria.id
+*            - El endpoint solo lee la última foto (AtomicReference), no consulta Mongo
+*            - Las escrituras de productos marcan la foto como desactualizada y el
+*              recalculo corre en segundo plano cada 'interval', solo si hubo cambios */
+@Component
+public class EstadisticasCategorias {
+
+    private static final Logger log = LoggerFactory.getLogger(EstadisticasCategorias.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final AtomicReference<ResumenCategorias> actual = new AtomicReference<>(new ResumenCategorias(null, List.of()));
+
+    // true si hubo escrituras desde el último calculo
+    private final AtomicBoolean pendiente = new AtomicBoolean(true);
+
+    public EstadisticasCategorias(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public ResumenCategorias actual() {
+        return actual.get();
+    }
+
+    public void marcarCambio() {
+        pendiente.set(true);
+    }
+
+    public Mono<ResumenCategorias> recalcular() {
+
+        // Tipada con Producto para que 'categoria.id' se traduzca a 'categoria._id'
+        TypedAggregation<Producto> agregacion = Aggregation.newAggregation(Producto.class,
+                Aggregation.group("categoria.id")
+                        .first("categoria.nombre").as("nombre")
+                        .count().as("cantidad")
+                        .min("precio").as("precioMinimo")
+                        .max("precio").as("precioMaximo")
+                        .avg("precio").as("precioPromedio"),
+                Aggregation.sort(Sort.Direction.ASC, "nombre"));
+
+        return Mono.defer(() -> {
+            // Se baja antes de consultar : una escritura durante el calculo deja pendiente el siguiente
+            pendiente.set(false);
+            Instant inicio = Instant.now();
+            return mongoTemplate.aggregate(agregacion, Document.class)
+                    .map(EstadisticasCategorias::estadistica)
+                    .collectList()
+                    .map(categorias -> new ResumenCategorias(inicio, categorias))
+                    .doOnNext(actual::set)
+                    .doOnError(error -> pendiente.set(true));
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${configuration.stats.categorias.interval:PT30S}",
+            initialDelayString = "${configuration.stats.categorias.interval:PT30S}")
+    public void refrescar() {
+        // Igual que el recolector de fotos : corre en el hilo del scheduler y puede esperar
+        if (!pendiente.get())
+            return;
+        try {
+            recalcular().block();
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron recalcular las estadisticas por categoria", e);
+        }
+    }
+
+    private static EstadisticaCategoria estadistica(Document grupo) {
+        Object id = grupo.get("_id");
+        return new EstadisticaCategoria(
+                id == null ? null : id.toString(),
+                grupo.getString("nombre"),
+                ((Number) grupo.get("cantidad")).longValue(),
+                numero(grupo.get("precioMinimo")),
+                numero(grupo.get("precioMaximo")),
+                numero(grupo.get("precioPromedio")));
+    }
+
+    private static Double numero(Object valor) {
+        return valor instanceof Number n ? n.doubleValue() : null;
+    }
+}
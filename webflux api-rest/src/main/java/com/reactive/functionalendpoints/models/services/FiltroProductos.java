@@ -0,0 +1,78 @@
+package com.reactive.functionalendpoints.models.services;
+
+import lombok.Builder;
+import lombok.Getter;
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/*Objetivo : Filtros del listado de productos. Todos son opcionales y se
+*            combinan con AND en un solo Criteria que Mongo resuelve con los
+*            indices de GestorIndices (categoria.id + precio, nombre, createAt).
+*            - categoria : id de la categoria
+*            - precioMin / precioMax : rango de precio (inclusive)
+*            - nombre : prefijo del nombre, sensible a mayúsculas para que la
+*              expresión '^prefijo' pueda usar el indice
+*            - desde (inclusive) / hasta (exclusive) : rango de createAt */
+@Getter
+@Builder
+public class FiltroProductos {
+
+    // Caracteres especiales de una expresión regular, se escapan en el prefijo
+    private static final Pattern ESPECIALES = Pattern.compile("[\\\\^$.|?*+()\\[\\]{}]");
+
+    private final String categoria;
+
+    private final Double precioMin;
+
+    private final Double precioMax;
+
+    private final String nombre;
+
+    private final Date desde;
+
+    private final Date hasta;
+
+    public static FiltroProductos vacio() {
+        return FiltroProductos.builder().build();
+    }
+
+    // null si no hay ningún filtro
+    public Criteria criterio() {
+
+        if (precioMin != null && precioMax != null && precioMin > precioMax)
+            throw new IllegalArgumentException("El precio mínimo no puede ser mayor que el máximo");
+        if (desde != null && hasta != null && desde.after(hasta))
+            throw new IllegalArgumentException("La fecha inicial no puede ser posterior a la final");
+
+        List<Criteria> partes = new ArrayList<>();
+        if (categoria != null)
+            partes.add(Criteria.where("categoria.id").is(ObjectId.isValid(categoria) ? new ObjectId(categoria) : categoria));
+        if (precioMin != null || precioMax != null) {
+            Criteria precio = Criteria.where("precio");
+            if (precioMin != null)
+                precio.gte(precioMin);
+            if (precioMax != null)
+                precio.lte(precioMax);
+            partes.add(precio);
+        }
+        if (nombre != null && !nombre.isEmpty())
+            partes.add(Criteria.where("nombre").regex("^" + ESPECIALES.matcher(nombre).replaceAll("\\\\$0")));
+        if (desde != null || hasta != null) {
+            Criteria fecha = Criteria.where("createAt");
+            if (desde != null)
+                fecha.gte(desde);
+            if (hasta != null)
+                fecha.lt(hasta);
+            partes.add(fecha);
+        }
+
+        if (partes.isEmpty())
+            return null;
+        return partes.size() == 1 ? partes.get(0) : new Criteria().andOperator(partes);
+    }
+}
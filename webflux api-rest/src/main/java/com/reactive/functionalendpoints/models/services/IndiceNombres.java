@@ -0,0 +1,301 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.Sugerencia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/*Objetivo : Indice invertido en memoria de los nombres de productos para
+*            búsqueda y autocompletado sin consultar Mongo.
+*            - Los nombres se normalizan : minúsculas y sin acentos, así
+*              "comoda" encuentra "Cómoda" y "computacion" "Computación"
+*            - Cada palabra se indexa por todos sus prefijos (hasta 'max-prefix'
+*              caracteres) : el autocompletado es una sola lectura de un Map
+*            - La búsqueda tolera errores de tipeo : si los prefijos exactos no
+*              alcanzan el límite se comparan las palabras conocidas de largo
+*              parecido con distancia de edición 1 (2 desde 8 letras)
+*            - El cambio de nombre de un id (quitar el anterior, indexar el nuevo)
+*              ocurre dentro de un solo compute sobre 'nombres' : dos escrituras
+*              del mismo producto no se intercalan ni dejan entradas huérfanas
+*            Se carga al arrancar y ProductoServiceImpl lo mantiene al día en cada
+*            escritura. */
+@Component
+public class IndiceNombres {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceNombres.class);
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // prefijo -> ids de productos con alguna palabra que empieza así
+    private final Map<String, Set<String>> prefijos = new ConcurrentHashMap<>();
+
+    // palabra completa -> ids (vocabulario para la búsqueda con errores de tipeo)
+    private final Map<String, Set<String>> palabras = new ConcurrentHashMap<>();
+
+    // id -> nombre original (para responder el autocompletado desde memoria)
+    private final Map<String, String> nombres = new ConcurrentHashMap<>();
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final int maximoPrefijo;
+
+    public IndiceNombres(ReactiveMongoTemplate mongoTemplate,
+                         @Value("${configuration.search.max-prefix:12}") int maximoPrefijo) {
+        this.mongoTemplate = mongoTemplate;
+        this.maximoPrefijo = maximoPrefijo;
+    }
+
+    // Carga inicial : recorre la colección trayendo solo id y nombre
+    public Mono<Long> cargar() {
+        Query query = new Query().cursorBatchSize(1000);
+        query.fields().include("nombre");
+        return mongoTemplate.find(query, Producto.class)
+                .doOnNext(this::indexar)
+                .count()
+                .doOnNext(total -> log.info("Indice de nombres cargado : {} productos, {} palabras", total, palabras.size()));
+    }
+
+    public void indexar(Producto producto) {
+        String id = producto.getId();
+        if (id == null)
+            return;
+        String nombre = producto.getNombre();
+        // El compute bloquea solo la entrada de este id : otra escritura del mismo id espera
+        nombres.compute(id, (clave, anterior) -> {
+            if (anterior != null)
+                desindexar(id, anterior);
+            if (nombre == null)
+                return null;
+            for (String palabra : palabras(nombre)) {
+                agregar(palabras, palabra, id);
+                for (int largo = 1; largo <= Math.min(palabra.length(), maximoPrefijo); largo++)
+                    agregar(prefijos, palabra.substring(0, largo), id);
+            }
+            return nombre;
+        });
+    }
+
+    public void quitar(String id) {
+        nombres.computeIfPresent(id, (clave, anterior) -> {
+            desindexar(id, anterior);
+            return null;
+        });
+    }
+
+    // Se llama dentro del compute de 'nombres' para ese id
+    private void desindexar(String id, String nombre) {
+        for (String palabra : palabras(nombre)) {
+            sacar(palabras, palabra, id);
+            for (int largo = 1; largo <= Math.min(palabra.length(), maximoPrefijo); largo++)
+                sacar(prefijos, palabra.substring(0, largo), id);
+        }
+    }
+
+    /* Autocompletado : todas las palabras de 'q' deben ser prefijo de alguna
+    * palabra del nombre. Solo prefijos exactos (normalizados), sin Mongo */
+    public List<Sugerencia> autocompletar(String q, int limite) {
+        List<String> terminos = palabras(q);
+        if (terminos.isEmpty())
+            return List.of();
+
+        Set<String> ids = null;
+        for (String termino : terminos) {
+            Set<String> coincidencias = porPrefijo(termino);
+            ids = ids == null ? coincidencias : interseccion(ids, coincidencias);
+            if (ids.isEmpty())
+                return List.of();
+        }
+
+        /* Nombres más cortos primero (más parecidos a lo escrito), luego alfabético.
+        * Heap acotado a 'limite' con el peor en la cima : se revisan todos los
+        * candidatos sin ordenarlos todos */
+        Comparator<Sugerencia> orden = Comparator.comparingInt((Sugerencia s) -> s.getNombre().length())
+                .thenComparing(Sugerencia::getNombre);
+        PriorityQueue<Sugerencia> mejores = new PriorityQueue<>(limite + 1, orden.reversed());
+        for (String id : ids) {
+            String nombre = nombres.get(id);
+            if (nombre == null)
+                continue;
+            mejores.offer(new Sugerencia(id, nombre));
+            if (mejores.size() > limite)
+                mejores.poll();
+        }
+        List<Sugerencia> resultado = new ArrayList<>(mejores);
+        resultado.sort(orden);
+        return resultado;
+    }
+
+    /* Búsqueda : como el autocompletado pero cada palabra puede tener errores de
+    * tipeo. Devuelve ids ordenados por relevancia (menos correcciones primero) */
+    public List<String> buscar(String q, int limite) {
+        List<String> terminos = palabras(q);
+        if (terminos.isEmpty())
+            return List.of();
+
+        /* Primero solo prefijos exactos (0 correcciones, siempre quedan primero).
+        * Si ya alcanzan el límite la pasada con errores de tipeo no cambia el resultado */
+        List<String> exactos = buscar(terminos, limite, false);
+        if (exactos.size() >= limite)
+            return exactos;
+        return buscar(terminos, limite, true);
+    }
+
+    private List<String> buscar(List<String> terminos, int limite, boolean aproximada) {
+        Map<String, Integer> correcciones = null;
+        for (String termino : terminos) {
+            Map<String, Integer> coincidencias = aproximada ? coincidenciasAproximadas(termino) : exactas(termino);
+            if (correcciones == null) {
+                correcciones = coincidencias;
+            } else {
+                Map<String, Integer> anterior = correcciones;
+                correcciones = new HashMap<>();
+                for (Map.Entry<String, Integer> entrada : coincidencias.entrySet()) {
+                    Integer previo = anterior.get(entrada.getKey());
+                    if (previo != null)
+                        correcciones.put(entrada.getKey(), previo + entrada.getValue());
+                }
+            }
+            if (correcciones.isEmpty())
+                return List.of();
+        }
+
+        return correcciones.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue()
+                        .thenComparing(entrada -> nombres.getOrDefault(entrada.getKey(), "")))
+                .limit(limite)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private Map<String, Integer> exactas(String termino) {
+        Map<String, Integer> resultado = new HashMap<>();
+        porPrefijo(termino).forEach(id -> resultado.put(id, 0));
+        return resultado;
+    }
+
+    // id -> cantidad de correcciones necesarias para que 'termino' coincida
+    private Map<String, Integer> coincidenciasAproximadas(String termino) {
+        Map<String, Integer> resultado = exactas(termino);
+
+        int tolerancia = termino.length() >= 8 ? 2 : termino.length() >= 4 ? 1 : 0;
+        if (tolerancia == 0)
+            return resultado;
+
+        for (Map.Entry<String, Set<String>> entrada : palabras.entrySet()) {
+            String palabra = entrada.getKey();
+            // Una palabra más corta que 'termino' - tolerancia nunca queda a esa distancia
+            if (palabra.length() < termino.length() - tolerancia)
+                continue;
+            // Se compara contra el prefijo de la palabra, así también tolera palabras incompletas
+            String inicio = palabra.substring(0, Math.min(palabra.length(), termino.length() + tolerancia));
+            int distancia = distancia(termino, inicio, palabra.length() > termino.length(), tolerancia);
+            if (distancia > 0 && distancia <= tolerancia)
+                for (String id : entrada.getValue())
+                    resultado.merge(id, distancia, Math::min);
+        }
+        return resultado;
+    }
+
+    private Set<String> porPrefijo(String termino) {
+        String clave = termino.length() > maximoPrefijo ? termino.substring(0, maximoPrefijo) : termino;
+        Set<String> ids = prefijos.getOrDefault(clave, Set.of());
+        if (clave.length() == termino.length())
+            return ids;
+        // Más largo que los prefijos indexados : se confirma contra las palabras del nombre
+        Set<String> confirmados = new HashSet<>();
+        for (String id : ids) {
+            String nombre = nombres.get(id);
+            if (nombre != null && palabras(nombre).stream().anyMatch(palabra -> palabra.startsWith(termino)))
+                confirmados.add(id);
+        }
+        return confirmados;
+    }
+
+    /* Distancia de edición (Levenshtein) entre 'a' y 'b'. Si 'prefijo' es true
+    * 'b' es el inicio de una palabra más larga y se toma el mejor corte de 'b'.
+    * Se corta apenas supera la tolerancia */
+    static int distancia(String a, String b, boolean prefijo, int tolerancia) {
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++)
+            anterior[j] = j;
+
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int minimo = actual[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int costo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                actual[j] = Math.min(Math.min(actual[j - 1] + 1, anterior[j] + 1), anterior[j - 1] + costo);
+                minimo = Math.min(minimo, actual[j]);
+            }
+            if (minimo > tolerancia)
+                return tolerancia + 1;
+            int[] auxiliar = anterior;
+            anterior = actual;
+            actual = auxiliar;
+        }
+
+        if (!prefijo)
+            return anterior[b.length()];
+        return Arrays.stream(anterior).min().orElse(tolerancia + 1);
+    }
+
+    // Palabras normalizadas (minúsculas, sin acentos), sin repetidos
+    static List<String> palabras(String texto) {
+        if (texto == null)
+            return List.of();
+        String normalizado = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        return new ArrayList<>(new LinkedHashSet<>(Arrays.stream(SEPARADORES.split(normalizado))
+                .filter(palabra -> !palabra.isEmpty())
+                .toList()));
+    }
+
+    private static Set<String> interseccion(Set<String> a, Set<String> b) {
+        Set<String> menor = a.size() <= b.size() ? a : b;
+        Set<String> mayor = menor == a ? b : a;
+        Set<String> resultado = new HashSet<>();
+        for (String id : menor)
+            if (mayor.contains(id))
+                resultado.add(id);
+        return resultado;
+    }
+
+    private static void agregar(Map<String, Set<String>> indice, String clave, String id) {
+        indice.compute(clave, (k, ids) -> {
+            Set<String> conjunto = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            conjunto.add(id);
+            return conjunto;
+        });
+    }
+
+    // Las entradas vacias se eliminan para no acumular memoria
+    private static void sacar(Map<String, Set<String>> indice, String clave, String id) {
+        indice.computeIfPresent(clave, (k, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+}
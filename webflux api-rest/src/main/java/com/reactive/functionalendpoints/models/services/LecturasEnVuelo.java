@@ -0,0 +1,83 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/*Objetivo : Lecturas compartidas (singleflight) de findById. Si llegan muchas
+*            lecturas concurrentes del mismo id (ej. una promoción) con la cache
+*            vacia o vencida, solo la primera consulta Mongo y las demás esperan
+*            ese mismo resultado.
+*            - La entrada se quita apenas termina la consulta : una lectura
+*              posterior hace su propia consulta (o encuentra la cache)
+*            - Una escritura la suelta (olvidar) : quien llegue después no se
+*              une a una consulta que empezó antes del cambio
+*            - Si una de las lecturas se cancela, la consulta sigue para las demás
+*            - Cada lectura recibe su propia copia del producto */
+@Component
+public class LecturasEnVuelo {
+
+    private final Map<String, CompletableFuture<Producto>> enVuelo = new ConcurrentHashMap<>();
+
+    private final LongAdder consultas = new LongAdder();
+
+    private final LongAdder compartidas = new LongAdder();
+
+    public Mono<Producto> obtener(String id, Function<String, Mono<Producto>> carga) {
+        return Mono.deferContextual(contexto -> {
+            CompletableFuture<Producto> nueva = new CompletableFuture<>();
+            CompletableFuture<Producto> existente = enVuelo.putIfAbsent(id, nueva);
+            if (existente != null) {
+                compartidas.increment();
+                return compartida(existente);
+            }
+
+            consultas.increment();
+            // Se suscribe aparte para que no dependa de quién la inició (si se cancela, sigue).
+            // El contexto viaja igual : el tiempo en Mongo se le atribuye a esa petición
+            carga.apply(id)
+                    .contextWrite(contexto)
+                    .subscribe(
+                            producto -> terminar(id, nueva, producto, null),
+                            error -> terminar(id, nueva, null, error),
+                            () -> terminar(id, nueva, null, null));
+            return compartida(nueva);
+        });
+    }
+
+    // Las lecturas que lleguen después ya no se unen a la consulta en curso
+    public void olvidar(String id) {
+        if (id != null)
+            enVuelo.remove(id);
+    }
+
+    public long getConsultas() {
+        return consultas.sum();
+    }
+
+    public long getCompartidas() {
+        return compartidas.sum();
+    }
+
+    // Se quita antes de completar : quien llegue desde ahora no ve una entrada ya resuelta
+    private void terminar(String id, CompletableFuture<Producto> lectura, Producto producto, Throwable error) {
+        if (lectura.isDone())
+            return;
+        enVuelo.remove(id, lectura);
+        if (error != null)
+            lectura.completeExceptionally(error);
+        else
+            lectura.complete(producto);
+    }
+
+    // suppressCancel : cancelar una lectura no cancela el futuro que comparten las demás
+    private static Mono<Producto> compartida(CompletableFuture<Producto> lectura) {
+        return Mono.fromFuture(lectura, true).map(ProductoCache::copia);
+    }
+}
@@ -0,0 +1,98 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*Objetivo : Cache en memoria (read-through) delante de ProductoServiceImpl.findById.
+*            - Acotada por tamaño y por TTL (Caffeine, sus operaciones no bloquean
+*              el event loop de Netty)
+*            - Se invalida en cada escritura (save/delete)
+*            - Guarda y entrega copias, porque los handlers modifican el producto
+*              que reciben antes de guardarlo */
+@Component
+public class ProductoCache {
+
+    private final boolean habilitada;
+
+    private final Cache<String, Producto> cache;
+
+    /* Se incrementa en cada invalidación. Una lectura que empezó antes de una
+    * escritura no guarda su resultado (podria ser el documento anterior) */
+    private final AtomicLong generacion = new AtomicLong();
+
+    public ProductoCache(@Value("${configuration.cache.productos.enabled:true}") boolean habilitada,
+                         @Value("${configuration.cache.productos.max-size:10000}") long tamanoMaximo,
+                         @Value("${configuration.cache.productos.ttl:60s}") Duration ttl) {
+        this.habilitada = habilitada;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(tamanoMaximo)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    public Mono<Producto> obtener(String id, Function<String, Mono<Producto>> carga) {
+        if (!habilitada)
+            return carga.apply(id);
+
+        return Mono.defer(() -> {
+            Producto enCache = cache.getIfPresent(id);
+            if (enCache != null)
+                return Mono.just(copia(enCache));
+
+            long version = generacion.get();
+            return carga.apply(id)
+                    .doOnNext(producto -> {
+                        if (generacion.get() == version)
+                            cache.put(id, copia(producto));
+                    });
+        });
+    }
+
+    // Solo consulta la cache, vacio si no está (no carga nada)
+    public Mono<Producto> buscar(String id) {
+        if (!habilitada)
+            return Mono.empty();
+        return Mono.fromSupplier(() -> {
+            Producto enCache = cache.getIfPresent(id);
+            return enCache == null ? null : copia(enCache);
+        });
+    }
+
+    public void invalidar(String id) {
+        generacion.incrementAndGet();
+        if (id != null)
+            cache.invalidate(id);
+    }
+
+    public Map<String, Object> estadisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        resultado.put("habilitada", habilitada);
+        resultado.put("tamano", cache.estimatedSize());
+        resultado.put("aciertos", stats.hitCount());
+        resultado.put("fallos", stats.missCount());
+        resultado.put("desalojos", stats.evictionCount());
+        resultado.put("tasaAciertos", stats.hitRate());
+        return resultado;
+    }
+
+    // También la usa LecturasEnVuelo, cada lectura compartida recibe su copia
+    static Producto copia(Producto producto) {
+        Producto.ProductoBuilder builder = producto.toBuilder();
+        if (producto.getCategoria() != null)
+            builder.categoria(producto.getCategoria().toBuilder().build());
+        return builder.build();
+    }
+}
@@ -4,22 +4,80 @@ package com.reactive.functionalendpoints.models.services;
 
 import com.reactive.functionalendpoints.models.documents.Categoria;
 import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.PaginaProductos;
+import com.reactive.functionalendpoints.models.dto.ResultadoEliminacion;
+import com.reactive.functionalendpoints.models.dto.Sugerencia;
+import org.springframework.data.domain.Sort;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
+
 public interface ProductoService {
 
     public Flux<Producto> findAll();
 
+    // Solo con los campos de 'campos' (proyección en Mongo), null para el documento completo
+    public Flux<Producto> findAll(CamposProducto campos);
+
+    /* Recorre la colección con un cursor que trae 'batchSize' documentos por viaje.
+    * Solo los productos que cumplen 'filtro', en el orden 'orden' (null = orden natural) */
+    public Flux<Producto> findAllStream(int batchSize, FiltroProductos filtro, Sort orden, CamposProducto campos);
+
+    /* Paginación por llave : 'after' es el cursor devuelto en la página
+    * anterior (null para la primera), 'campo' el campo de orden y 'filtro'
+    * las condiciones que deben cumplir todos los productos de la página.
+    * 'campos' proyección opcional (null para el documento completo) */
+    public Mono<PaginaProductos> findPage(FiltroProductos filtro, String after, int limit, String campo,
+                                          Sort.Direction direccion, CamposProducto campos);
+
     public Flux<Producto> findAllWithNameUpperCase();
 
     public Flux<Producto> findAllWithNameUpperCaseRepeat();
 
     public Mono<Producto> findById(String id);
 
+    /* Con proyección : si el producto está en cache se usa la copia completa,
+    * si no se pide a Mongo solo lo necesario (ese resultado parcial no se cachea) */
+    public Mono<Producto> findById(String id, CamposProducto campos);
+
     public Mono<Producto> save(Producto producto);
     public Mono<Void> delete(Producto producto);
 
+    /* Registra las variantes generadas de 'foto'. Si mientras tanto el producto
+    * cambió de foto no se modifica nada (Mono vacio) */
+    public Mono<Producto> registrarVariantes(String id, String foto, Map<String, String> variantes);
+
+    // Borra sin cargar antes el documento, devuelve cuantos se borraron y su foto
+    public Mono<ResultadoEliminacion> deleteById(String id);
+
+    // Un solo delete con '_id: {$in: ids}', devuelve la cantidad borrada
+    public Mono<Long> deleteAllById(List<String> ids);
+
+    /* Actualización parcial atómica : aplica solo los campos no nulos de 'cambios'
+    * con un único findAndModify y devuelve el documento ya actualizado */
+    public Mono<Producto> patch(String id, Producto cambios);
+
+    /* Inserta el lote con una sola operación bulk desordenada. Devuelve los
+    * errores por posición dentro de la lista (vacio si todos se insertaron) */
+    public Mono<Map<Integer, String>> insertarLote(List<Producto> productos);
+
+    /* Búsqueda por nombre en el indice en memoria (sin acentos, tolera errores
+    * de tipeo). Solo va a Mongo para traer los productos encontrados */
+    public Flux<Producto> buscar(String q, int limite);
+
+    // Autocompletado por prefijo, se responde solo desde memoria
+    public List<Sugerencia> autocompletar(String q, int limite);
+
+    // Contadores de la cache de findById (aciertos, fallos, desalojos)
+    public Map<String, Object> estadisticasCache();
+
+    /* La categoria registrada que corresponde a la recibida (por id o nombre),
+    * null si no existe. Se resuelve en memoria, sin consultar Mongo */
+    public Categoria categoriaCanonica(Categoria categoria);
+
+    // Las consultas de categorias se responden desde el registro en memoria
     public Flux<Categoria> findAllCategoria();
 
     public Mono<Categoria> findCategoriaById(String id);
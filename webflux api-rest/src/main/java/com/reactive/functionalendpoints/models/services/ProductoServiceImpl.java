@@ -5,12 +5,33 @@ import com.reactive.functionalendpoints.models.dao.CategoriaDao;
 import com.reactive.functionalendpoints.models.dao.ProductoDao;
 import com.reactive.functionalendpoints.models.documents.Categoria;
 import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.CambioProducto;
+import com.reactive.functionalendpoints.models.dto.PaginaProductos;
+import com.reactive.functionalendpoints.models.dto.ResultadoEliminacion;
+import com.reactive.functionalendpoints.models.dto.Sugerencia;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.result.DeleteResult;
 import lombok.AllArgsConstructor;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 @AllArgsConstructor
@@ -20,6 +41,22 @@ public class ProductoServiceImpl implements ProductoService{
 
     private final CategoriaDao categoriaDao;
 
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final ProductoCache productoCache;
+
+    private final EstadisticasCategorias estadisticasCategorias;
+
+    private final IndiceNombres indiceNombres;
+
+    private final BusCambios busCambios;
+
+    private final RegistroCategorias registroCategorias;
+
+    private final LecturasEnVuelo lecturasEnVuelo;
+
+    private final CargadorLotes cargadorLotes;
+
     private static final Logger log = LoggerFactory.getLogger(ProductoServiceImpl.class);
 
     @Override
@@ -27,6 +64,60 @@ public class ProductoServiceImpl implements ProductoService{
         return productoDao.findAll();
     }
 
+    @Override
+    public Flux<Producto> findAll(CamposProducto campos) {
+        return campos == null ? findAll() : mongoTemplate.find(campos.aplicar(new Query()), Producto.class);
+    }
+
+    @Override
+    public Flux<Producto> findAllStream(int batchSize, FiltroProductos filtro, Sort orden, CamposProducto campos) {
+        return Flux.defer(() -> {
+            Query query = new Query().cursorBatchSize(batchSize);
+            Criteria criterio = filtro.criterio();
+            if (criterio != null)
+                query.addCriteria(criterio);
+            if (orden != null)
+                query.with(orden);
+            return mongoTemplate.find(campos == null ? query : campos.aplicar(query), Producto.class);
+        });
+    }
+
+    @Override
+    public Mono<PaginaProductos> findPage(FiltroProductos filtro, String after, int limit, String campo,
+                                          Sort.Direction direccion, CamposProducto campos) {
+
+        return Mono.defer(() -> {
+            CursorProductos.validarCampo(campo);
+            Query query = new Query();
+            // Filtro y cursor se agregan como condiciones separadas (AND implicito)
+            Criteria criterio = filtro.criterio();
+            if (criterio != null)
+                query.addCriteria(criterio);
+            if (after != null) {
+                CursorProductos cursor = CursorProductos.decodificar(after);
+                // Un cursor solo sirve para el mismo orden con el que se generó
+                if (!cursor.getCampo().equals(campo) || cursor.getDireccion() != direccion)
+                    return Mono.error(new IllegalArgumentException("El cursor no corresponde al orden solicitado"));
+                query.addCriteria(cursor.criterio());
+            }
+            // Se pide un elemento de más para saber si existe una siguiente página
+            query.with(CursorProductos.orden(campo, direccion)).limit(limit + 1);
+            // El campo de orden hace falta para armar el cursor aunque no se haya pedido
+            if (campos != null)
+                campos.aplicar(query, CursorProductos.CAMPO_ID, campo);
+
+            return mongoTemplate.find(query, Producto.class)
+                    .collectList()
+                    .map(lista -> {
+                        if (lista.size() <= limit)
+                            return new PaginaProductos(lista, null);
+                        List<Producto> pagina = lista.subList(0, limit);
+                        Producto ultimo = pagina.get(pagina.size() - 1);
+                        return new PaginaProductos(pagina, CursorProductos.desde(ultimo, campo, direccion).codificar());
+                    });
+        });
+    }
+
     @Override
     public Flux<Producto> findAllWithNameUpperCase() {
 
@@ -44,32 +135,202 @@ public class ProductoServiceImpl implements ProductoService{
 
     @Override
     public Mono<Producto> findById(String id) {
-        return productoDao.findById(id);
+        /* Con la cache vacia o vencida, las lecturas concurrentes del mismo id comparten una consulta.
+        * Si los lotes están habilitados, los ids distintos se agrupan en una sola consulta $in */
+        return productoCache.obtener(id, clave -> lecturasEnVuelo.obtener(clave, cargadorLotes::cargar));
+    }
+
+    @Override
+    public Mono<Producto> findById(String id, CamposProducto campos) {
+        if (campos == null)
+            return findById(id);
+        return productoCache.buscar(id)
+                .switchIfEmpty(Mono.defer(() -> mongoTemplate.findOne(
+                        campos.aplicar(Query.query(Criteria.where("id").is(id))), Producto.class)));
     }
 
     @Override
     public Mono<Producto> save(Producto producto) {
-        return productoDao.save(producto);
+        // Sin id es un alta, con id una edición (save hace upsert)
+        String tipo = producto.getId() == null ? CambioProducto.CREADO : CambioProducto.ACTUALIZADO;
+        return productoDao.save(producto)
+                .doOnNext(resultado -> guardado(resultado, tipo));
     }
 
     @Override
     public Mono<Void> delete(Producto producto) {
-        return productoDao.delete(producto);
+        return productoDao.delete(producto)
+                .doOnSuccess(vacio -> eliminado(producto.getId()));
+    }
+
+    @Override
+    public Mono<Producto> registrarVariantes(String id, String foto, Map<String, String> variantes) {
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(id).and("foto").is(foto)),
+                        new Update().set("variantes", variantes),
+                        FindAndModifyOptions.options().returnNew(true), Producto.class)
+                .doOnNext(actualizado -> guardado(actualizado, CambioProducto.ACTUALIZADO));
+    }
+
+    @Override
+    public Mono<ResultadoEliminacion> deleteById(String id) {
+
+        // findAndRemove borra y devuelve el documento en el mismo viaje, solo se proyecta la foto
+        Query query = Query.query(Criteria.where("id").is(id));
+        query.fields().include("foto");
+
+        return mongoTemplate.findAndRemove(query, Producto.class)
+                .map(eliminado -> new ResultadoEliminacion(1, eliminado.getFoto()))
+                .defaultIfEmpty(new ResultadoEliminacion(0, null))
+                .doOnNext(resultado -> {
+                    if (resultado.getEliminados() > 0)
+                        eliminado(id);
+                    else
+                        productoCache.invalidar(id);
+                });
+    }
+
+    @Override
+    public Mono<Long> deleteAllById(List<String> ids) {
+        return mongoTemplate.remove(Query.query(Criteria.where("id").in(ids)), Producto.class)
+                .map(DeleteResult::getDeletedCount)
+                .doOnNext(eliminados -> {
+                    /* Sin saber cuales existian se informan todos los ids pedidos,
+                    * eliminar uno que no existe es inocuo para quien consume el feed */
+                    if (eliminados > 0)
+                        ids.forEach(this::eliminado);
+                    else
+                        ids.forEach(productoCache::invalidar);
+                });
+    }
+
+    @Override
+    public Mono<Producto> patch(String id, Producto cambios) {
+
+        // '$set' solo de lo que llegó, el resto del documento no se reescribe
+        Update update = new Update();
+        if (cambios.getNombre() != null)
+            update.set("nombre", cambios.getNombre());
+        if (cambios.getPrecio() != null)
+            update.set("precio", cambios.getPrecio());
+        if (cambios.getCreateAt() != null)
+            update.set("createAt", cambios.getCreateAt());
+        if (cambios.getCategoria() != null)
+            update.set("categoria", cambios.getCategoria());
+
+        if (update.getUpdateObject().isEmpty())
+            return findById(id);
+
+        return mongoTemplate.findAndModify(Query.query(Criteria.where("id").is(id)), update,
+                        FindAndModifyOptions.options().returnNew(true), Producto.class)
+                .doOnNext(actualizado -> guardado(actualizado, CambioProducto.ACTUALIZADO));
+    }
+
+    @Override
+    public Mono<Map<Integer, String>> insertarLote(List<Producto> productos) {
+        if (productos.isEmpty())
+            return Mono.just(Map.of());
+
+        // El id se asigna antes para poder informarlo por cada fila insertada
+        productos.forEach(producto -> {
+            if (producto.getId() == null)
+                producto.setId(new ObjectId().toHexString());
+        });
+
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Producto.class)
+                .insert(productos)
+                .execute()
+                .<Map<Integer, String>>map(resultado -> Map.of())
+                .onErrorResume(error -> Mono.just(erroresPorPosicion(error, productos.size())))
+                // Aunque fallen algunas filas el resto quedó insertado
+                .doOnNext(errores -> {
+                    for (int i = 0; i < productos.size(); i++)
+                        if (!errores.containsKey(i))
+                            guardado(productos.get(i), CambioProducto.CREADO);
+                });
+    }
+
+    /* Después de cada escritura : la cache, las estadisticas por categoria, el
+    * indice de nombres y el feed de cambios se actualizan en el mismo punto */
+    private void guardado(Producto producto, String tipo) {
+        productoCache.invalidar(producto.getId());
+        lecturasEnVuelo.olvidar(producto.getId());
+        estadisticasCategorias.marcarCambio();
+        indiceNombres.indexar(producto);
+        busCambios.publicar(tipo, producto.getId(), producto);
+    }
+
+    private void eliminado(String id) {
+        productoCache.invalidar(id);
+        lecturasEnVuelo.olvidar(id);
+        estadisticasCategorias.marcarCambio();
+        indiceNombres.quitar(id);
+        busCambios.publicar(CambioProducto.ELIMINADO, id, null);
+    }
+
+    /* En modo desordenado Mongo sigue con el resto del lote cuando una fila falla,
+    * MongoBulkWriteException trae el indice de cada fila con error. Si no viene
+    * (error de red, etc.) se considera fallido todo el lote */
+    private static Map<Integer, String> erroresPorPosicion(Throwable error, int tamano) {
+        Map<Integer, String> errores = new HashMap<>();
+        for (Throwable causa = error; causa != null; causa = causa.getCause()) {
+            if (causa instanceof MongoBulkWriteException bulk) {
+                for (BulkWriteError writeError : bulk.getWriteErrors())
+                    errores.put(writeError.getIndex(), writeError.getMessage());
+                if (!errores.isEmpty())
+                    return errores;
+            }
+        }
+        for (int i = 0; i < tamano; i++)
+            errores.put(i, error.getMessage());
+        return errores;
+    }
+
+    @Override
+    public Flux<Producto> buscar(String q, int limite) {
+        // La pasada con errores de tipeo recorre el vocabulario : fuera del event loop de Netty
+        return Mono.fromCallable(() -> indiceNombres.buscar(q, limite))
+                .subscribeOn(Schedulers.parallel())
+                .filter(ids -> !ids.isEmpty())
+                // Una sola consulta por _id y se respeta el orden de relevancia del indice
+                .flatMapMany(ids -> productoDao.findAllById(ids)
+                        .collectMap(Producto::getId)
+                        .flatMapIterable(porId -> ids.stream().map(porId::get).filter(Objects::nonNull).toList()));
+    }
+
+    @Override
+    public List<Sugerencia> autocompletar(String q, int limite) {
+        return indiceNombres.autocompletar(q, limite);
+    }
+
+    @Override
+    public Categoria categoriaCanonica(Categoria categoria) {
+        return registroCategorias.canonica(categoria);
+    }
+
+    @Override
+    public Map<String, Object> estadisticasCache() {
+        Map<String, Object> estadisticas = productoCache.estadisticas();
+        // Lecturas que fueron a Mongo y las que se sumaron a una consulta en curso
+        estadisticas.put("consultasFindById", lecturasEnVuelo.getConsultas());
+        estadisticas.put("lecturasCompartidas", lecturasEnVuelo.getCompartidas());
+        estadisticas.put("lotes", cargadorLotes.estadisticas());
+        return estadisticas;
     }
 
     @Override
     public Flux<Categoria> findAllCategoria() {
-        return categoriaDao.findAll();
+        return Flux.defer(() -> Flux.fromIterable(registroCategorias.todas()));
     }
 
     @Override
     public Mono<Categoria> findCategoriaById(String id) {
-        return categoriaDao.findById(id);
+        return Mono.fromSupplier(() -> registroCategorias.buscar(id));
     }
 
     @Override
     public Mono<Categoria> save(Categoria categoria) {
-        return categoriaDao.save(categoria);
+        return categoriaDao.save(categoria)
+                .doOnNext(registroCategorias::registrar);
     }
 
     @Override
@@ -79,6 +340,6 @@ public class ProductoServiceImpl implements ProductoService{
 
     @Override
     public Mono<Categoria> findCategoriaByNombre(String nombre) {
-        return categoriaDao.findByNombre(nombre);
+        return Mono.fromSupplier(() -> registroCategorias.buscarPorNombre(nombre));
     }
 }
@@ -0,0 +1,124 @@
+package com.reactive.functionalendpoints.models.services;
+
+import com.reactive.functionalendpoints.models.dao.CategoriaDao;
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.text.Normalizer;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/*Objetivo : Todas las categorias en memoria (son pocas y casi no cambian).
+*            - Se cargan al arrancar y se actualizan en cada save(Categoria);
+*              además se recargan periódicamente por si cambian fuera de la app
+*            - Sirve para validar que la categoria embebida en un Producto exista
+*              y para dejarla canónica (id y nombre de la BD) sin ir a Mongo
+*            - Los mapas se reemplazan completos (copy-on-write) : las lecturas
+*              nunca se bloquean y siempre ven un estado consistente
+*            Entrega copias, el Producto que la recibe puede modificarla. */
+@Component
+public class RegistroCategorias {
+
+    private static final Logger log = LoggerFactory.getLogger(RegistroCategorias.class);
+
+    private final CategoriaDao categoriaDao;
+
+    private volatile Map<String, Categoria> porId = Map.of();
+
+    // nombre normalizado (minúsculas, sin acentos) -> categoria
+    private volatile Map<String, Categoria> porNombre = Map.of();
+
+    public RegistroCategorias(CategoriaDao categoriaDao) {
+        this.categoriaDao = categoriaDao;
+    }
+
+    public Mono<Integer> cargar() {
+        return categoriaDao.findAll()
+                .collectList()
+                .map(categorias -> {
+                    reemplazar(categorias);
+                    return categorias.size();
+                })
+                .doOnNext(total -> log.info("Registro de categorias cargado : {} categorias", total));
+    }
+
+    @Scheduled(fixedDelayString = "${configuration.categorias.refresh:PT5M}",
+            initialDelayString = "${configuration.categorias.refresh:PT5M}")
+    public void recargar() {
+        // Mismo criterio que los demás procesos programados : corre en el hilo del scheduler
+        try {
+            cargar().block();
+        } catch (RuntimeException e) {
+            log.warn("No se pudo recargar el registro de categorias", e);
+        }
+    }
+
+    public synchronized void registrar(Categoria categoria) {
+        Map<String, Categoria> nuevoPorId = new HashMap<>(porId);
+        Categoria anterior = nuevoPorId.put(categoria.getId(), copia(categoria));
+        Map<String, Categoria> nuevoPorNombre = new HashMap<>(porNombre);
+        if (anterior != null)
+            nuevoPorNombre.remove(normalizar(anterior.getNombre()));
+        nuevoPorNombre.put(normalizar(categoria.getNombre()), copia(categoria));
+        porId = Map.copyOf(nuevoPorId);
+        porNombre = Map.copyOf(nuevoPorNombre);
+    }
+
+    /* Categoria canónica que corresponde a la recibida : por id si viene,
+    * si no por nombre (sin importar mayúsculas ni acentos). null si no existe */
+    public Categoria canonica(Categoria categoria) {
+        if (categoria == null)
+            return null;
+        Categoria encontrada = categoria.getId() != null
+                ? porId.get(categoria.getId())
+                : porNombre.get(normalizar(categoria.getNombre()));
+        return encontrada == null ? null : copia(encontrada);
+    }
+
+    public Categoria buscar(String id) {
+        Categoria categoria = porId.get(id);
+        return categoria == null ? null : copia(categoria);
+    }
+
+    public Categoria buscarPorNombre(String nombre) {
+        Categoria categoria = porNombre.get(normalizar(nombre));
+        return categoria == null ? null : copia(categoria);
+    }
+
+    public List<Categoria> todas() {
+        return porId.values().stream()
+                .sorted(Comparator.comparing(Categoria::getNombre, Comparator.nullsLast(Comparator.naturalOrder())))
+                .map(RegistroCategorias::copia)
+                .toList();
+    }
+
+    private synchronized void reemplazar(List<Categoria> categorias) {
+        Map<String, Categoria> nuevoPorId = new HashMap<>();
+        Map<String, Categoria> nuevoPorNombre = new HashMap<>();
+        for (Categoria categoria : categorias) {
+            nuevoPorId.put(categoria.getId(), categoria);
+            nuevoPorNombre.put(normalizar(categoria.getNombre()), categoria);
+        }
+        porId = Map.copyOf(nuevoPorId);
+        porNombre = Map.copyOf(nuevoPorNombre);
+    }
+
+    private static String normalizar(String nombre) {
+        if (nombre == null)
+            return "";
+        return Normalizer.normalize(nombre.trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static Categoria copia(Categoria categoria) {
+        return categoria.toBuilder().build();
+    }
+}
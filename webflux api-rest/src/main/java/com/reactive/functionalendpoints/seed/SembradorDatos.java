@@ -0,0 +1,188 @@
+package com.reactive.functionalendpoints.seed;
+
+import com.reactive.functionalendpoints.models.documents.Categoria;
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/*Objetivo : Cargar los datos iniciales de la aplicación.
+*            - Por defecto (configuration.seed.productos=0) inserta las 4 categorias
+*              y 9 productos de demostración de siempre
+*            - Con configuration.seed.categorias / configuration.seed.productos > 0
+*              genera un dataset sintético del tamaño pedido (millones) a partir de
+*              una semilla fija: el mismo valor de 'semilla' produce siempre los mismos
+*              documentos, ids incluidos, para que las pruebas de carga sean repetibles
+*            - Inserta en lotes grandes desordenados (bulkOps UNORDERED) con una
+*              concurrencia acotada y reporta el throughput obtenido
+*            El orden de los pasos (limpiar -> sembrar) lo decide quien lo llama,
+*            aqui cada paso es un Mono que termina cuando Mongo confirmó el trabajo. */
+@Component
+public class SembradorDatos {
+
+    private static final Logger log = LoggerFactory.getLogger(SembradorDatos.class);
+
+    // Prefijo de tiempo fijo de los ObjectId sintéticos (2024-01-01T00:00:00Z)
+    private static final long EPOCA_IDS = 1704067200L;
+
+    private static final long FECHA_BASE = EPOCA_IDS * 1000;
+
+    private static final long UN_ANIO_MS = Duration.ofDays(365).toMillis();
+
+    private static final int TIPO_CATEGORIA = 1;
+
+    private static final int TIPO_PRODUCTO = 2;
+
+    private static final String[] MARCAS = {"Sony", "Samsung", "LG", "Apple", "HP", "Asus", "Lenovo", "Bianchi", "Philips", "Panasonic"};
+
+    private static final String[] ARTICULOS = {"TV", "Notebook", "Camara", "Bicicleta", "Monitor", "Audifonos", "Mesa", "Silla", "Parlante", "Tablet"};
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    private final int categorias;
+
+    private final long productos;
+
+    private final long semilla;
+
+    private final int tamanoLote;
+
+    private final int concurrencia;
+
+    public SembradorDatos(ReactiveMongoTemplate mongoTemplate,
+                          @Value("${configuration.seed.categorias:0}") int categorias,
+                          @Value("${configuration.seed.productos:0}") long productos,
+                          @Value("${configuration.seed.semilla:42}") long semilla,
+                          @Value("${configuration.seed.batch-size:1000}") int tamanoLote,
+                          @Value("${configuration.seed.concurrency:4}") int concurrencia) {
+        this.mongoTemplate = mongoTemplate;
+        this.categorias = categorias;
+        this.productos = productos;
+        this.semilla = semilla;
+        this.tamanoLote = tamanoLote;
+        this.concurrencia = concurrencia;
+    }
+
+    // Borra las colecciones una después de la otra, termina cuando ambas ya no existen
+    public Mono<Void> limpiar() {
+        return mongoTemplate.dropCollection("productos")
+                .then(mongoTemplate.dropCollection("categorias"))
+                .doOnSuccess(v -> log.info("Colecciones 'productos' y 'categorias' eliminadas"));
+    }
+
+    public Mono<Long> sembrar() {
+        return productos > 0 ? sembrarSintetico() : sembrarDemo();
+    }
+
+    private Mono<Long> sembrarDemo() {
+
+        Categoria electronico = categoria(0, "Electrónico");
+        Categoria deporte = categoria(1, "Deporte");
+        Categoria computacion = categoria(2, "Computación");
+        Categoria muebles = categoria(3, "Muebles");
+
+        List<Producto> demo = List.of(
+                Producto.builder().categoria(electronico).nombre("TV Panasonic").precio(456.89).build(),
+                Producto.builder().categoria(electronico).nombre("Sony Camara HD Digital").precio(177.89).build(),
+                Producto.builder().categoria(electronico).nombre("Apple ipod").precio(46.89).build(),
+                Producto.builder().categoria(computacion).nombre("Sony Notebook").precio(846.89).build(),
+                Producto.builder().categoria(computacion).nombre("Hewlett Packard Multifuncional").precio(200.89).build(),
+                Producto.builder().categoria(deporte).nombre("Bianchi Bicicleta").precio(70.89).build(),
+                Producto.builder().categoria(computacion).nombre("HP Notebook Omen 17").precio(2500.89).build(),
+                Producto.builder().categoria(muebles).nombre("Mica Cómoda 5 Cajones").precio(150.89).build(),
+                Producto.builder().categoria(electronico).nombre("TV Sony Bravia OLED 4k Ultra HD").precio(2255.89).build());
+
+        for (int i = 0; i < demo.size(); i++) {
+            demo.get(i).setId(id(TIPO_PRODUCTO, i));
+            demo.get(i).setCreateAt(new Date());
+        }
+
+        return insertar(List.of(electronico, deporte, computacion, muebles), Categoria.class)
+                .then(insertar(demo, Producto.class))
+                .doOnNext(total -> log.info("Datos de demostración cargados : {} productos", total));
+    }
+
+    private Mono<Long> sembrarSintetico() {
+
+        int totalCategorias = Math.max(categorias, 1);
+        List<Categoria> listaCategorias = IntStream.range(0, totalCategorias)
+                .mapToObj(i -> categoria(i, String.format("Categoria %04d", i)))
+                .toList();
+
+        AtomicLong insertados = new AtomicLong();
+        long reporte = Math.max(productos / 20, tamanoLote);
+
+        return Mono.defer(() -> {
+            long inicio = System.nanoTime();
+            log.info("Sembrando {} categorias y {} productos (semilla {}, lotes de {}, concurrencia {})",
+                    totalCategorias, productos, semilla, tamanoLote, concurrencia);
+
+            return insertar(listaCategorias, Categoria.class)
+                    // Los productos se generan a medida que se piden, nunca está todo el dataset en memoria
+                    .thenMany(Flux.range(0, (int) Math.min(productos, Integer.MAX_VALUE))
+                            .map(i -> producto(i, listaCategorias))
+                            .buffer(tamanoLote)
+                            .flatMap(lote -> insertar(lote, Producto.class), concurrencia))
+                    .doOnNext(n -> {
+                        long antes = insertados.getAndAdd(n);
+                        if ((antes + n) / reporte > antes / reporte)
+                            log.info("Siembra : {}/{} productos", antes + n, productos);
+                    })
+                    .then(Mono.fromSupplier(() -> {
+                        long total = insertados.get();
+                        long ms = Math.max(Duration.ofNanos(System.nanoTime() - inicio).toMillis(), 1);
+                        log.info("Siembra terminada : {} categorias y {} productos en {} ms ({} docs/s)",
+                                totalCategorias, total, ms, (totalCategorias + total) * 1000 / ms);
+                        return total;
+                    }));
+        });
+    }
+
+    private <T> Mono<Long> insertar(List<T> documentos, Class<T> tipo) {
+        if (documentos.isEmpty())
+            return Mono.just(0L);
+        return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, tipo)
+                .insert(new ArrayList<>(documentos))
+                .execute()
+                .map(resultado -> (long) resultado.getInsertedCount());
+    }
+
+    /* Cada producto depende solo de (semilla, indice), así el resultado no cambia
+    * aunque los lotes se inserten en paralelo y en cualquier orden */
+    private Producto producto(int indice, List<Categoria> listaCategorias) {
+        SplittableRandom random = new SplittableRandom(semilla * 0x9E3779B97F4A7C15L + indice);
+        String nombre = MARCAS[random.nextInt(MARCAS.length)] + " "
+                + ARTICULOS[random.nextInt(ARTICULOS.length)] + " " + indice;
+        double precio = Math.round(random.nextDouble(1.0, 5000.0) * 100) / 100.0;
+
+        return Producto.builder()
+                .id(id(TIPO_PRODUCTO, indice))
+                .nombre(nombre)
+                .precio(precio)
+                .createAt(new Date(FECHA_BASE - random.nextLong(UN_ANIO_MS)))
+                .categoria(listaCategorias.get(random.nextInt(listaCategorias.size())))
+                .build();
+    }
+
+    private static Categoria categoria(int indice, String nombre) {
+        return Categoria.builder().id(id(TIPO_CATEGORIA, indice)).nombre(nombre).build();
+    }
+
+    // ObjectId válido y estable : epoca fija (4 bytes) + tipo (1 byte) + indice (7 bytes)
+    private static String id(int tipo, long indice) {
+        return String.format("%08x%02x%014x", EPOCA_IDS, tipo, indice);
+    }
+}
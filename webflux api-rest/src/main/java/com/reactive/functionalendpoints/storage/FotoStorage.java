@@ -0,0 +1,225 @@
+package com.reactive.functionalendpoints.storage;
+
+import com.reactive.functionalendpoints.models.documents.Producto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/*Objetivo : Almacén de fotos direccionado por contenido.
+*            - Cada foto se guarda una sola vez con el nombre '<sha256>.<ext>'.
+*              El hash se calcula mientras los bytes llegan y se escriben a un
+*              archivo temporal, al terminar se mueve a su nombre definitivo.
+*              Si ya existia un blob con ese contenido el temporal se descarta.
+*            - Las referencias de cada blob son los productos cuyo 'foto' lo
+*              apuntan. Un recolector en segundo plano borra los blobs que ya
+*              nadie referencia (foto reemplazada, producto borrado, validación
+*              fallida) y que no se han usado durante el periodo de gracia.
+*              Las variantes redimensionadas ('<sha256>-<variante>.<ext>') viven
+*              mientras viva su original. */
+@Component
+public class FotoStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(FotoStorage.class);
+
+    // '<sha256>' + variante opcional ('-thumb') + extensión opcional
+    private static final Pattern BLOB = Pattern.compile("^([0-9a-f]{64})(-[a-z0-9]{1,20})?(\\.[a-z0-9]{1,10})?$");
+
+    private static final String PREFIJO_TEMPORAL = ".subida-";
+
+    private final Path directorio;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    // Un blob recién escrito o reutilizado no se recolecta antes de este tiempo
+    private final Duration gracia;
+
+    public FotoStorage(@Value("${configuration.path}") String ruta, ReactiveMongoTemplate mongoTemplate,
+                       @Value("${configuration.fotos.gc.grace:1h}") Duration gracia) {
+        this.directorio = Paths.get(ruta);
+        this.mongoTemplate = mongoTemplate;
+        this.gracia = gracia;
+    }
+
+    /* Ruta del archivo dentro del directorio de fotos, o null si el nombre
+    * intenta salir de él ('../', separadores) */
+    public Path resolver(String foto) {
+        if (foto == null || foto.isBlank() || foto.startsWith(".") || foto.contains("/") || foto.contains("\\"))
+            return null;
+        Path archivo = directorio.resolve(foto).normalize();
+        return archivo.startsWith(directorio.normalize()) ? archivo : null;
+    }
+
+    // Hash del contenido de un blob (o del original de una variante), null si no es un blob
+    public static String digest(String foto) {
+        Matcher matcher = foto == null ? null : BLOB.matcher(foto);
+        return matcher != null && matcher.matches() ? matcher.group(1) : null;
+    }
+
+    /* Nombre del blob sin la extensión ('<sha256>' o '<sha256>-<variante>'), identifica
+    * el contenido de forma única. null si no es un blob */
+    public static String clave(String foto) {
+        Matcher matcher = foto == null ? null : BLOB.matcher(foto);
+        if (matcher == null || !matcher.matches())
+            return null;
+        return matcher.group(2) == null ? matcher.group(1) : matcher.group(1) + matcher.group(2);
+    }
+
+    /* Guarda el contenido y devuelve el nombre del blob. Los buffers se escriben
+    * con un canal no bloqueante, el hash se actualiza con cada buffer antes de
+    * escribirlo (sin mover su posición de lectura) */
+    public Mono<String> guardar(Flux<DataBuffer> contenido, String nombreOriginal) {
+
+        return Mono.defer(() -> {
+            MessageDigest sha256 = nuevoDigest();
+            Path temporal = directorio.resolve(PREFIJO_TEMPORAL + UUID.randomUUID() + ".tmp");
+
+            Flux<DataBuffer> conHash = contenido.doOnNext(buffer -> {
+                try (DataBuffer.ByteBufferIterator iterador = buffer.readableByteBuffers()) {
+                    while (iterador.hasNext())
+                        sha256.update(iterador.next());
+                }
+            });
+
+            return DataBufferUtils.write(conHash, temporal, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)
+                    .then(Mono.fromCallable(() -> publicar(temporal, HexFormat.of().formatHex(sha256.digest()) + extension(nombreOriginal)))
+                            .subscribeOn(Schedulers.boundedElastic()))
+                    // Si se corta a la mitad (limite, cliente desconectado) no queda un temporal
+                    .onErrorResume(error -> Mono.fromCallable(() -> Files.deleteIfExists(temporal))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .then(Mono.<String>error(error)));
+        });
+    }
+
+    // Mueve el temporal a su nombre definitivo o lo descarta si el contenido ya existia
+    private String publicar(Path temporal, String nombre) throws IOException {
+
+        Path destino = directorio.resolve(nombre);
+        if (Files.exists(destino)) {
+            try {
+                // Se renueva la fecha para que el recolector no lo borre mientras se guarda el producto
+                Files.setLastModifiedTime(destino, FileTime.from(Instant.now()));
+                Files.delete(temporal);
+                return nombre;
+            } catch (NoSuchFileException e) {
+                // El recolector lo borró justo ahora, se publica el temporal
+            }
+        }
+        try {
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Otra subida con el mismo contenido lo publicó primero
+            Files.deleteIfExists(temporal);
+        }
+        return nombre;
+    }
+
+    @Scheduled(fixedDelayString = "${configuration.fotos.gc.interval:PT10M}",
+            initialDelayString = "${configuration.fotos.gc.interval:PT10M}")
+    public void recolectar() {
+        /* Corre en el hilo del scheduler de Spring, no en el event loop, por eso
+        * puede esperar el resultado y así dos recolecciones nunca se solapan */
+        Long borrados = Mono.fromCallable(this::candidatos)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapIterable(candidatos -> candidatos)
+                .flatMap(archivo -> estaReferenciado(archivo.getFileName().toString())
+                        .filter(referenciado -> !referenciado)
+                        .publishOn(Schedulers.boundedElastic())
+                        .map(huerfano -> borrarSiSigueViejo(archivo)), 4)
+                .filter(borrado -> borrado)
+                .count()
+                .block();
+
+        if (borrados != null && borrados > 0)
+            log.info("Recolector de fotos : " + borrados + " blobs sin referencias borrados");
+    }
+
+    // Blobs y temporales más viejos que el periodo de gracia
+    private List<Path> candidatos() throws IOException {
+        if (!Files.isDirectory(directorio))
+            return List.of();
+        try (Stream<Path> archivos = Files.list(directorio)) {
+            return archivos.filter(archivo -> {
+                String nombre = archivo.getFileName().toString();
+                return (BLOB.matcher(nombre).matches() || nombre.startsWith(PREFIJO_TEMPORAL)) && esViejo(archivo);
+            }).toList();
+        }
+    }
+
+    private Mono<Boolean> estaReferenciado(String nombre) {
+        // Los temporales nunca están referenciados
+        if (nombre.startsWith(PREFIJO_TEMPORAL))
+            return Mono.just(false);
+        /* Un blob (o una de sus variantes) sigue vivo mientras algún producto apunte
+        * a una foto con ese hash. Regex de prefijo : puede usar el indice de 'foto' */
+        return mongoTemplate.exists(Query.query(Criteria.where("foto").regex("^" + digest(nombre))), Producto.class);
+    }
+
+    /* Se vuelve a mirar la fecha justo antes de borrar : si una subida reutilizó
+    * el blob mientras se consultaba Mongo, ya no es viejo y se conserva */
+    private boolean borrarSiSigueViejo(Path archivo) {
+        try {
+            return esViejo(archivo) && Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            log.warn("No se pudo borrar el blob " + archivo, e);
+            return false;
+        }
+    }
+
+    private boolean esViejo(Path archivo) {
+        try {
+            return Files.getLastModifiedTime(archivo).toInstant().isBefore(Instant.now().minus(gracia));
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String extension(String nombreOriginal) {
+        if (nombreOriginal == null)
+            return "";
+        int punto = nombreOriginal.lastIndexOf('.');
+        String extension = punto < 0 ? "" : nombreOriginal.substring(punto + 1).toLowerCase(Locale.ROOT);
+        return extension.matches("[a-z0-9]{1,10}") ? "." + extension : "";
+    }
+
+    private static MessageDigest nuevoDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.reactive.functionalendpoints.storage;
+
+import com.reactive.functionalendpoints.models.services.ProductoService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/*Objetivo : Genera variantes redimensionadas (thumb, medium...) de las fotos
+*            después de 'upload'/'crearConFoto', para que las vistas de lista no
+*            descarguen la foto completa.
+*            - Las tareas entran a una cola acotada. Si la cola está llena la tarea
+*              se descarta (y se entrega la foto original) en lugar de acumular
+*              memoria durante una ráfaga de subidas
+*            - Se procesan en un pool acotado de hilos propio, nunca en el event
+*              loop de Netty (ImageIO es bloqueante y usa CPU)
+*            - Las variantes se guardan junto al original como
+*              '<sha256>-<variante>.<ext>' y se registran en Producto.variantes.
+*              Como el nombre depende del contenido, una foto repetida reutiliza
+*              las variantes ya generadas */
+@Component
+public class GeneradorVariantes {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneradorVariantes.class);
+
+    private final FotoStorage fotoStorage;
+
+    private final ProductoService productoService;
+
+    // nombre de variante -> ancho/alto maximo en pixeles
+    private final Map<String, Integer> variantes;
+
+    private final Sinks.Many<Tarea> cola;
+
+    private final Scheduler workers;
+
+    private final Disposable procesamiento;
+
+    public GeneradorVariantes(FotoStorage fotoStorage, ProductoService productoService,
+                              @Value("${configuration.fotos.variantes:thumb:160,medium:640}") String variantes,
+                              @Value("${configuration.fotos.variantes.workers:2}") int hilos,
+                              @Value("${configuration.fotos.variantes.queue-capacity:256}") int capacidadCola) {
+        this.fotoStorage = fotoStorage;
+        this.productoService = productoService;
+        this.variantes = parsear(variantes);
+        this.workers = Schedulers.newBoundedElastic(hilos, capacidadCola, "variantes-foto");
+        this.cola = Sinks.many().unicast().onBackpressureBuffer(Queues.<Tarea>get(capacidadCola).get());
+        // flatMap con concurrencia = hilos : el resto de tareas espera en la cola
+        this.procesamiento = cola.asFlux()
+                .flatMap(tarea -> procesar(tarea)
+                        .onErrorResume(error -> {
+                            log.warn("No se pudieron generar las variantes de " + tarea.foto(), error);
+                            return Mono.empty();
+                        }), hilos)
+                .subscribe();
+    }
+
+    public boolean existe(String variante) {
+        return variantes.containsKey(variante);
+    }
+
+    // Devuelve false si la cola está llena y la tarea se descartó
+    public boolean encolar(String productoId, String foto) {
+        if (variantes.isEmpty() || foto == null)
+            return false;
+
+        Sinks.EmitResult resultado;
+        // El sink unicast no admite emisiones concurrentes
+        synchronized (cola) {
+            resultado = cola.tryEmitNext(new Tarea(productoId, foto));
+        }
+        if (resultado.isFailure()) {
+            log.warn("Cola de variantes llena (" + resultado + "), se omite la foto " + foto);
+            return false;
+        }
+        return true;
+    }
+
+    // Para las métricas : pool de los workers y tareas esperando en la cola
+    public Scheduler getWorkers() {
+        return workers;
+    }
+
+    public int tareasEnCola() {
+        Integer enCola = cola.scan(Scannable.Attr.BUFFERED);
+        return enCola == null ? 0 : enCola;
+    }
+
+    @PreDestroy
+    public void detener() {
+        procesamiento.dispose();
+        workers.dispose();
+    }
+
+    private Mono<Void> procesar(Tarea tarea) {
+        return Mono.fromCallable(() -> generar(tarea.foto()))
+                .subscribeOn(workers)
+                .filter(generadas -> !generadas.isEmpty())
+                .flatMap(generadas -> productoService.registrarVariantes(tarea.productoId(), tarea.foto(), generadas))
+                .then();
+    }
+
+    private Map<String, String> generar(String foto) throws IOException {
+
+        Path original = fotoStorage.resolver(foto);
+        if (original == null || !Files.isRegularFile(original))
+            return Collections.emptyMap();
+
+        int punto = foto.lastIndexOf('.');
+        String base = punto < 0 ? foto : foto.substring(0, punto);
+        String extension = punto < 0 ? "" : foto.substring(punto + 1).toLowerCase(Locale.ROOT);
+        // JPEG no soporta transparencia
+        String formato = extension.equals("png") || extension.equals("gif") ? "png" : "jpg";
+
+        BufferedImage imagen = null;
+        Map<String, String> generadas = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> variante : variantes.entrySet()) {
+            String nombre = base + "-" + variante.getKey() + "." + formato;
+            Path destino = fotoStorage.resolver(nombre);
+            if (destino == null)
+                continue;
+
+            if (!Files.exists(destino)) {
+                if (imagen == null) {
+                    imagen = ImageIO.read(original.toFile());
+                    // No es una imagen que ImageIO pueda leer
+                    if (imagen == null)
+                        return Collections.emptyMap();
+                }
+                escribir(redimensionar(imagen, variante.getValue(), formato.equals("png")), formato, destino);
+            }
+            generadas.put(variante.getKey(), nombre);
+        }
+        return generadas;
+    }
+
+    private static BufferedImage redimensionar(BufferedImage imagen, int maximo, boolean transparencia) {
+
+        double escala = Math.min(1.0, (double) maximo / Math.max(imagen.getWidth(), imagen.getHeight()));
+        int ancho = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+        int alto = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+
+        BufferedImage resultado = new BufferedImage(ancho, alto,
+                transparencia ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resultado.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(imagen, 0, 0, ancho, alto, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resultado;
+    }
+
+    // Se escribe a un temporal y se mueve, nunca queda una variante a medias con el nombre final
+    private static void escribir(BufferedImage imagen, String formato, Path destino) throws IOException {
+
+        Path temporal = destino.resolveSibling(".variante-" + UUID.randomUUID() + ".tmp");
+        try {
+            ImageIO.write(imagen, formato, temporal.toFile());
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    // "thumb:160,medium:640" -> {thumb=160, medium=640}
+    private static Map<String, Integer> parsear(String configuracion) {
+        Map<String, Integer> resultado = new LinkedHashMap<>();
+        for (String item : configuracion.split(",")) {
+            if (item.isBlank())
+                continue;
+            String[] partes = item.trim().split(":");
+            if (partes.length != 2)
+                throw new IllegalArgumentException("Variante de foto inválida : " + item);
+            resultado.put(partes[0].trim().toLowerCase(Locale.ROOT), Integer.valueOf(partes[1].trim()));
+        }
+        return resultado;
+    }
+
+    private record Tarea(String productoId, String foto) {
+    }
+}
@@ -1,20 +1,63 @@
 package com.reactive.functionalendpoints;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.reactive.functionalendpoints.diagnostico.RegistroLentas;
+import com.reactive.functionalendpoints.handler.ListadoStreaming;
+import com.reactive.functionalendpoints.limites.FiltroAdmision;
+import com.reactive.functionalendpoints.models.dao.ProductoDao;
 import com.reactive.functionalendpoints.models.documents.Categoria;
 import com.reactive.functionalendpoints.models.documents.Producto;
+import com.reactive.functionalendpoints.models.dto.CambioProducto;
+import com.reactive.functionalendpoints.models.dto.PeticionLenta;
+import com.reactive.functionalendpoints.models.dto.ResultadoLote;
+import com.reactive.functionalendpoints.models.services.BusCambios;
+import com.reactive.functionalendpoints.models.services.CargadorLotes;
+import com.reactive.functionalendpoints.models.services.FiltroProductos;
+import com.reactive.functionalendpoints.models.services.LecturasEnVuelo;
 import com.reactive.functionalendpoints.models.services.ProductoService;
+import io.netty.buffer.UnpooledByteBufAllocator;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBuffer;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.HttpMessageWriter;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.http.server.reactive.MockServerHttpResponse;
+import org.springframework.mock.web.reactive.function.server.MockServerRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.reactive.result.view.ViewResolver;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /* @SpringBootTest -> Le indica a la aplicaci[on se spring que tome la configuraci[on principal
 * de la aplicación, es decir, el context application
@@ -36,6 +79,12 @@ class FunctionalEndpointsApplicationTests {
 	@Autowired
 	private ProductoService productoService;
 
+	@Autowired
+	private BusCambios busCambios;
+
+	@Autowired
+	private ProductoDao productoDao;
+
 	@Value("${config.base.endpoint}")
 	private String basePath;
 
@@ -224,4 +273,459 @@ class FunctionalEndpointsApplicationTests {
 
 
 
+	@Test
+	void listarPaginadoTest() {
+
+		/* Primera página de 3 productos ordenados por _id. El cursor de la
+		* siguiente página viaja en el header 'X-Next-Cursor' */
+		List<Producto> primera = client.get().uri("/api/v3/products?limit=3")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().exists("X-Next-Cursor")
+				.expectBodyList(Producto.class).hasSize(3)
+				.returnResult().getResponseBody();
+
+		String cursor = client.get().uri("/api/v3/products?limit=3")
+				.exchange()
+				.returnResult(Producto.class)
+				.getResponseHeaders().getFirst("X-Next-Cursor");
+
+		// La segunda página empieza justo después de la primera (sin repetidos)
+		client.get().uri("/api/v3/products?limit=3&after={cursor}", Collections.singletonMap("cursor", cursor))
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(Producto.class)
+				.consumeWith(response -> {
+					List<Producto> segunda = response.getResponseBody();
+					Assertions.assertFalse(segunda.isEmpty());
+					segunda.forEach(p -> Assertions.assertTrue(primera.stream().noneMatch(q -> q.getId().equals(p.getId()))));
+				});
+
+		// Un cursor que no se puede decodificar es un error del cliente
+		client.get().uri("/api/v3/products?after=no-es-un-cursor")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void listarNdjsonTest() {
+
+		/* Con Accept 'application/x-ndjson' el listado sale en streaming,
+		* un producto por linea, en lugar de un arreglo JSON */
+		List<Producto> productos = client.get().uri(basePath)
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(Producto.class)
+				.getResponseBody()
+				.collectList()
+				.block();
+
+		Assertions.assertFalse(productos.isEmpty());
+		productos.forEach(producto -> Assertions.assertNotNull(producto.getId()));
+	}
+
+	@Test
+	void listarNdjsonCanceladoTest() {
+
+		// Se registra cada buffer creado para comprobar al final que ninguno quedó sin liberar
+		List<NettyDataBuffer> creados = new CopyOnWriteArrayList<>();
+		NettyDataBufferFactory factory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT) {
+			@Override
+			public NettyDataBuffer allocateBuffer(int initialCapacity) {
+				NettyDataBuffer buffer = super.allocateBuffer(initialCapacity);
+				creados.add(buffer);
+				return buffer;
+			}
+		};
+
+		/* Flush cada 2 productos; el "cliente" se desconecta a mitad de la segunda ventana.
+		* Como Reactor Netty, el writer libera los buffers que recibió */
+		MockServerHttpResponse respuesta = new MockServerHttpResponse(factory);
+		respuesta.setWriteHandler(cuerpo -> cuerpo.take(3).doOnNext(DataBufferUtils::release).then());
+		ServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get(basePath)).mutate()
+				.response(respuesta)
+				.build();
+		ServerResponse.Context contexto = new ServerResponse.Context() {
+			@Override
+			public List<HttpMessageWriter<?>> messageWriters() {
+				return HandlerStrategies.withDefaults().messageWriters();
+			}
+
+			@Override
+			public List<ViewResolver> viewResolvers() {
+				return List.of();
+			}
+		};
+
+		ListadoStreaming listado = new ListadoStreaming(productoService, new ObjectMapper().findAndRegisterModules(), 256, 2, false);
+		listado.ndjson(MockServerRequest.builder().build(), FiltroProductos.vacio(), null, null)
+				.flatMap(response -> response.writeTo(exchange, contexto))
+				.block(Duration.ofSeconds(5));
+
+		// Se cortó a mitad del listado y no quedó ningún buffer retenido
+		Assertions.assertTrue(creados.size() >= 3);
+		Assertions.assertTrue(creados.size() < productoService.findAll().count().block());
+		creados.forEach(buffer -> Assertions.assertEquals(0, buffer.getNativeBuffer().refCnt()));
+	}
+
+	@Test
+	void crearLoteTest() {
+
+		Categoria categoria = productoService.findCategoriaByNombre("Deporte").block();
+
+		/* Un arreglo con un producto valido y uno sin nombre : la respuesta
+		* informa el resultado de cada fila por su posición en el body */
+		List<Producto> lote = List.of(
+				Producto.builder().nombre("Balon futbol").precio(35.50).categoria(categoria).build(),
+				Producto.builder().precio(10.00).categoria(categoria).build());
+
+		client.post().uri(basePath + "/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue(lote)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(ResultadoLote.class)
+				.consumeWith(response -> {
+					List<ResultadoLote> resultados = response.getResponseBody();
+					Assertions.assertEquals(2, resultados.size());
+					ResultadoLote creado = resultados.stream().filter(r -> r.getIndice() == 0).findFirst().orElseThrow();
+					ResultadoLote invalido = resultados.stream().filter(r -> r.getIndice() == 1).findFirst().orElseThrow();
+					Assertions.assertEquals(ResultadoLote.CREADO, creado.getEstado());
+					Assertions.assertNotNull(creado.getId());
+					Assertions.assertEquals(ResultadoLote.INVALIDO, invalido.getEstado());
+					Assertions.assertFalse(invalido.getErrores().isEmpty());
+				});
+	}
+
+	@Test
+	void parchearTest() {
+
+		Producto producto = productoService.findByNombre("Apple ipod").block();
+
+		// Solo se envia el precio, el nombre y la categoria se conservan
+		client.patch().uri(basePath + "/{id}", Collections.singletonMap("id", producto.getId()))
+				.contentType(MediaType.APPLICATION_JSON)
+				.accept(MediaType.APPLICATION_JSON)
+				.bodyValue(Collections.singletonMap("precio", 99.99))
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.id").isEqualTo(producto.getId())
+				.jsonPath("$.nombre").isEqualTo("Apple ipod")
+				.jsonPath("$.precio").isEqualTo(99.99)
+				.jsonPath("$.categoria.nombre").isEqualTo(producto.getCategoria().getNombre());
+	}
+
+	@Test
+	void listarFiltradoTest() {
+
+		Categoria categoria = productoService.findCategoriaByNombre("Electrónico").block();
+
+		// Todos los productos devueltos cumplen los filtros, que se resuelven en Mongo
+		client.get().uri(basePath + "?category={id}&minPrice=100&name=TV&sort=precio&dir=desc",
+						Collections.singletonMap("id", categoria.getId()))
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(Producto.class)
+				.consumeWith(response -> {
+					List<Producto> productos = response.getResponseBody();
+					Assertions.assertFalse(productos.isEmpty());
+					productos.forEach(p -> {
+						Assertions.assertEquals(categoria.getId(), p.getCategoria().getId());
+						Assertions.assertTrue(p.getPrecio() >= 100);
+						Assertions.assertTrue(p.getNombre().startsWith("TV"));
+					});
+					for (int i = 1; i < productos.size(); i++)
+						Assertions.assertTrue(productos.get(i - 1).getPrecio() >= productos.get(i).getPrecio());
+				});
+
+		// Un rango de precios invertido es un error del cliente
+		client.get().uri(basePath + "?minPrice=10&maxPrice=1")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void listarNdjsonFiltradoTest() {
+
+		Categoria categoria = productoService.findCategoriaByNombre("Electrónico").block();
+
+		// El streaming aplica los mismos filtros y orden que el listado paginado
+		List<Producto> productos = client.get().uri(basePath + "?category={id}&maxPrice=1000&sort=precio&dir=asc",
+						Collections.singletonMap("id", categoria.getId()))
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.returnResult(Producto.class)
+				.getResponseBody()
+				.collectList()
+				.block();
+
+		Assertions.assertFalse(productos.isEmpty());
+		productos.forEach(p -> {
+			Assertions.assertEquals(categoria.getId(), p.getCategoria().getId());
+			Assertions.assertTrue(p.getPrecio() <= 1000);
+		});
+		for (int i = 1; i < productos.size(); i++)
+			Assertions.assertTrue(productos.get(i - 1).getPrecio() <= productos.get(i).getPrecio());
+
+		// Los filtros inválidos se rechazan antes de empezar el stream
+		client.get().uri(basePath + "?minPrice=10&maxPrice=1")
+				.accept(MediaType.APPLICATION_NDJSON)
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void verDetalleConCamposTest() {
+
+		Producto producto = productoService.findByNombre("Bianchi Bicicleta").block();
+
+		// Solo viajan los campos pedidos, en ese orden
+		client.get().uri(basePath + "/{id}?fields=nombre,precio", Collections.singletonMap("id", producto.getId()))
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.nombre").isEqualTo("Bianchi Bicicleta")
+				.jsonPath("$.precio").isEqualTo(producto.getPrecio())
+				.jsonPath("$.categoria").doesNotExist()
+				.jsonPath("$.createAt").doesNotExist();
+
+		// Un campo que no existe es un error del cliente
+		client.get().uri(basePath + "?fields=nombre,clave")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void estadisticasCategoriasTest() {
+
+		// La foto se calcula al arrancar, trae la fecha del calculo y una fila por categoria
+		client.get().uri("/api/v2/categories/stats")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.actualizado").isNotEmpty()
+				.jsonPath("$.categorias").isNotEmpty()
+				.jsonPath("$.categorias[?(@.nombre == 'Muebles')].cantidad").isNotEmpty();
+	}
+
+	@Test
+	void buscarYAutocompletarTest() {
+
+		// Sin acentos ni mayúsculas : "comoda" encuentra "Mica Cómoda 5 Cajones"
+		client.get().uri(basePath + "/autocomplete?q=mica com")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$[0].nombre").isEqualTo("Mica Cómoda 5 Cajones");
+
+		// Un error de tipeo en la búsqueda
+		client.get().uri(basePath + "/search?q=bisicleta")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(Producto.class)
+				.consumeWith(response -> Assertions.assertTrue(response.getResponseBody().stream()
+						.anyMatch(p -> p.getNombre().equals("Bianchi Bicicleta"))));
+	}
+
+	@Test
+	void feedCambiosTest() {
+
+		// Cada alta pasa por el bus de cambios que alimenta el feed SSE
+		Categoria categoria = productoService.findCategoriaByNombre("Deporte").block();
+		StepVerifier.create(busCambios.suscribir(null)
+						.filter(cambio -> cambio.getProducto() != null && "Raqueta tenis".equals(cambio.getProducto().getNombre())))
+				.then(() -> productoService.save(Producto.builder().nombre("Raqueta tenis").precio(80.00)
+						.categoria(categoria).build()).block())
+				.expectNextMatches(cambio -> CambioProducto.CREADO.equals(cambio.getTipo()))
+				.thenCancel()
+				.verify(Duration.ofSeconds(10));
+
+		// Un Last-Event-ID desconocido recibe RESYNC y el stream se cierra
+		StepVerifier.create(client.get().uri(basePath + "/changes")
+						.header("Last-Event-ID", "otro-proceso-15")
+						.accept(MediaType.TEXT_EVENT_STREAM)
+						.exchange()
+						.expectStatus().isOk()
+						.returnResult(String.class)
+						.getResponseBody())
+				.expectNextMatches(evento -> evento.contains(CambioProducto.RESYNC))
+				.expectComplete()
+				.verify(Duration.ofSeconds(10));
+	}
+
+	@Test
+	void categoriaInexistenteTest() {
+
+		// La categoria se valida contra el registro en memoria
+		Categoria inexistente = Categoria.builder().id("000000000000000000000000").nombre("Jardin").build();
+		client.post().uri(basePath)
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(Mono.just(Producto.builder().nombre("Pala").precio(15.00).categoria(inexistente).build()), Producto.class)
+				.exchange()
+				.expectStatus().isBadRequest();
+
+		client.get().uri("/api/v2/categories")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBodyList(Categoria.class)
+				.consumeWith(response -> Assertions.assertTrue(response.getResponseBody().stream()
+						.anyMatch(c -> c.getNombre().equals("Muebles"))));
+	}
+
+	@Test
+	void peticionesLentasTest() {
+
+		// El buffer es circular : con capacidad 2 quedan las dos últimas, más recientes primero
+		RegistroLentas registro = new RegistroLentas(2);
+		for (int i = 1; i <= 3; i++)
+			registro.registrar(new PeticionLenta(Instant.now(), "GET", "/api/v2/products/{id}",
+					Map.of("id", List.of(String.valueOf(i))), -1, 200, 600.0 * i, 0));
+		Assertions.assertEquals(3, registro.getTotal());
+		Assertions.assertEquals(List.of(1800.0, 1200.0),
+				registro.recientes().stream().map(PeticionLenta::getDuracionMs).toList());
+
+		client.get().uri("/api/v2/diagnostics/slow-requests")
+				.accept(MediaType.APPLICATION_JSON)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.umbralMs").isEqualTo(500)
+				.jsonPath("$.peticiones").isArray();
+	}
+
+	@Test
+	void limiteTasaTest() {
+
+		// DELETE por lote es una ruta pesada (ráfaga de 5). Solo 'clave-conocida' tiene cubeta propia
+		FiltroAdmision filtro = new FiltroAdmision(true, "X-API-Key", "clave-conocida", 1000,
+				100, 200, 256, 20, 40, 64, 2, 5, 8);
+		InetSocketAddress ip = new InetSocketAddress("10.0.0.1", 40000);
+		HandlerFunction<ServerResponse> handler = request -> ServerResponse.ok().build();
+
+		// Una clave distinta en cada petición no evita el límite : se cuenta por IP
+		List<HttpStatusCode> estados = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+			estados.add(filtro.filter(borrarLote(ip, "rotada-" + i), handler).block().statusCode());
+		Assertions.assertNotEquals(HttpStatus.TOO_MANY_REQUESTS, estados.get(0));
+		Assertions.assertTrue(estados.contains(HttpStatus.TOO_MANY_REQUESTS));
+
+		// Sin clave también es la cubeta de la IP, y el límite devuelve Retry-After
+		ServerResponse rechazo = filtro.filter(borrarLote(ip, null), handler).block();
+		Assertions.assertEquals(HttpStatus.TOO_MANY_REQUESTS, rechazo.statusCode());
+		Assertions.assertNotNull(rechazo.headers().getFirst(HttpHeaders.RETRY_AFTER));
+
+		// La clave conocida tiene su propia cubeta aunque venga desde la misma IP
+		Assertions.assertEquals(HttpStatus.OK, filtro.filter(borrarLote(ip, "clave-conocida"), handler).block().statusCode());
+
+		// Una respuesta que nunca se escribe no deja el lugar de concurrencia tomado : se libera al terminar el intercambio
+		int tomados = filtro.enCurso("/api/v2/products");
+		MockServerRequest sinEscribir = borrarLote(new InetSocketAddress("10.0.0.2", 40000), null);
+		filtro.filter(sinEscribir.exchange(), exchange -> filtro.filter(sinEscribir, handler).then()).block();
+		Assertions.assertEquals(tomados, filtro.enCurso("/api/v2/products"));
+	}
+
+	private static MockServerRequest borrarLote(InetSocketAddress ip, String clave) {
+		MockServerRequest.Builder builder = MockServerRequest.builder()
+				.method(HttpMethod.DELETE)
+				.uri(URI.create("/api/v2/products"))
+				.remoteAddress(ip)
+				.exchange(MockServerWebExchange.from(MockServerHttpRequest.delete("/api/v2/products")));
+		if (clave != null)
+			builder.header("X-API-Key", clave);
+		return builder.build();
+	}
+
+	@Test
+	void lecturasEnVueloTest() {
+
+		LecturasEnVuelo lecturas = new LecturasEnVuelo();
+		Producto producto = Producto.builder().id("promo-1").nombre("Promo").precio(10.00).build();
+		AtomicInteger consultas = new AtomicInteger();
+		Sinks.One<Producto> mongo = Sinks.one();
+		Function<String, Mono<Producto>> carga = id -> {
+			consultas.incrementAndGet();
+			return mongo.asMono();
+		};
+
+		// Cinco lecturas concurrentes del mismo id en frío : una sola consulta. Cancelar la primera no corta las demás
+		Disposable primera = lecturas.obtener("promo-1", carga).subscribe();
+		StepVerifier.create(Flux.merge(lecturas.obtener("promo-1", carga), lecturas.obtener("promo-1", carga),
+						lecturas.obtener("promo-1", carga), lecturas.obtener("promo-1", carga)))
+				.then(primera::dispose)
+				.then(() -> mongo.tryEmitValue(producto))
+				.recordWith(ArrayList::new)
+				.expectNextCount(4)
+				// Cada lectura recibe su propia copia
+				.consumeRecordedWith(productos -> Assertions.assertEquals(4,
+						productos.stream().map(System::identityHashCode).distinct().count()))
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+		Assertions.assertEquals(1, consultas.get());
+		Assertions.assertEquals(1, lecturas.getConsultas());
+		Assertions.assertEquals(4, lecturas.getCompartidas());
+
+		// Terminada la consulta la entrada se quita : la lectura siguiente consulta de nuevo
+		StepVerifier.create(lecturas.obtener("promo-1", carga))
+				.expectNextMatches(p -> p.getNombre().equals("Promo"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+		Assertions.assertEquals(2, consultas.get());
+
+		// Una escritura suelta la consulta en curso : quien llega después no se une a ella
+		Sinks.One<Producto> anterior = Sinks.one();
+		Disposable enCurso = lecturas.obtener("promo-2", id -> anterior.asMono()).subscribe();
+		lecturas.olvidar("promo-2");
+		StepVerifier.create(lecturas.obtener("promo-2", id -> Mono.just(producto)))
+				.expectNextMatches(p -> p.getNombre().equals("Promo"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(5));
+		Assertions.assertEquals(4, lecturas.getConsultas());
+		enCurso.dispose();
+
+		// Las cifras se publican junto a las de la cache
+		Assertions.assertTrue(productoService.estadisticasCache().containsKey("lecturasCompartidas"));
+	}
+
+	@Test
+	void cargadorLotesTest() {
+
+		// Con lotes habilitados y una ventana amplia las tres lecturas salen en una sola consulta $in
+		CargadorLotes cargador = new CargadorLotes(productoDao, true, Duration.ofMillis(50), 100, 4, 16);
+		Producto tv = productoService.findByNombre("TV Panasonic").block();
+		Producto bici = productoService.findByNombre("Bianchi Bicicleta").block();
+
+		// Un id que no existe termina vacio sin afectar a los demás del lote
+		StepVerifier.create(Mono.zip(cargador.cargar(tv.getId()),
+						cargador.cargar("000000000000000000000000").map(Producto::getNombre).defaultIfEmpty("vacio"),
+						cargador.cargar(bici.getId())))
+				.expectNextMatches(lote -> lote.getT1().getNombre().equals("TV Panasonic")
+						&& lote.getT2().equals("vacio")
+						&& lote.getT3().getNombre().equals("Bianchi Bicicleta"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(10));
+		Assertions.assertEquals(1L, cargador.estadisticas().get("lotes"));
+		Assertions.assertEquals(3L, cargador.estadisticas().get("lecturasAgrupadas"));
+
+		// Si el pedido no entra en la cola (aquí ya detenida) la lectura va directo a Mongo
+		cargador.detener();
+		StepVerifier.create(cargador.cargar(tv.getId()))
+				.expectNextMatches(p -> p.getNombre().equals("TV Panasonic"))
+				.expectComplete()
+				.verify(Duration.ofSeconds(10));
+		Assertions.assertEquals(1L, cargador.estadisticas().get("lotes"));
+	}
+
 }
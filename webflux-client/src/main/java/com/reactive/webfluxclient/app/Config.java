@@ -1,9 +1,13 @@
 package com.reactive.webfluxclient.app;
 
+import com.reactive.webfluxclient.diagnostico.MedicionWebClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class Config {
@@ -13,12 +17,39 @@ public class Config {
 
     private final String pathEndpoint;
 
-    public Config(@Value("${config.base.endpoint}") String pathEndpoint) {
+    // API key para el control de admisión de api-rest (configuration.limites.claves)
+    private final String apiKey;
+
+    public Config(@Value("${config.base.endpoint}") String pathEndpoint,
+                  @Value("${config.base.api-key:}") String apiKey) {
         this.pathEndpoint = pathEndpoint;
+        this.apiKey = apiKey;
+    }
+
+    /* Pool de conexiones propio hacia api-rest, con métricas : conexiones activas,
+    * ociosas y peticiones esperando una conexión (reactor.netty.connection.provider.*) */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider conexionesApiRest(){
+        return ConnectionProvider.builder("api-rest").metrics(true).build();
     }
 
+    /* Se parte del WebClient.Builder de Spring Boot (no de WebClient.create) para que
+    * cada llamada quede medida en http.client.requests, con la uri sin expandir (/{id}) */
     @Bean
-    public WebClient registrarWebClient(){
-        return WebClient.create(pathEndpoint);
+    public WebClient registrarWebClient(WebClient.Builder builder, ConnectionProvider conexionesApiRest,
+                                        MedicionWebClient medicionWebClient){
+        // La uri de Reactor Netty va con un valor fijo, la latencia por ruta ya está en http.client.requests
+        HttpClient httpClient = HttpClient.create(conexionesApiRest)
+                .metrics(true, uri -> "api-rest");
+        return builder.baseUrl(pathEndpoint)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                // Sin clave todas las llamadas de este cliente comparten el límite de una sola IP
+                .defaultHeaders(headers -> {
+                    if (!apiKey.isEmpty())
+                        headers.set("X-API-Key", apiKey);
+                })
+                // Tiempo en api-rest de cada petición, para el registro de peticiones lentas
+                .filter(medicionWebClient)
+                .build();
     }
 }
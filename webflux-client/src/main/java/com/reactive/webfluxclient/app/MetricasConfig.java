@@ -0,0 +1,54 @@
+package com.reactive.webfluxclient.app;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.web.embedded.netty.NettyServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Supplier;
+
+/*Objetivo : Métricas en formato Prometheus (GET /actuator/prometheus).
+*            Con actuator, Spring Boot ya registra http.server.requests (un timer
+*            por ruta, con el patrón del RouterFunction como 'uri') y, por el
+*            WebClient.Builder de Config, http.client.requests hacia api-rest.
+*            Acá se agregan las métricas del servidor Reactor Netty y las tareas
+*            en cola de los schedulers de Reactor (se calculan solo al leerlas) */
+@Configuration
+public class MetricasConfig {
+
+    @Bean
+    public NettyServerCustomizer metricasNetty() {
+        // uri con valor fijo : el path real crearía una serie por cada id
+        return httpServer -> httpServer.metrics(true, uri -> "/");
+    }
+
+    @Bean
+    public MeterBinder metricasSchedulers() {
+        return registry -> {
+            colaScheduler(registry, "parallel", Schedulers::parallel);
+            colaScheduler(registry, "boundedElastic", Schedulers::boundedElastic);
+        };
+    }
+
+    private static void colaScheduler(MeterRegistry registry, String nombre, Supplier<Scheduler> scheduler) {
+        Gauge.builder("reactor.scheduler.tasks.queued", () -> encoladas(scheduler.get()))
+                .tag("scheduler", nombre)
+                .description("Tareas esperando un hilo del scheduler")
+                .register(registry);
+    }
+
+    // Suma lo encolado en cada ejecutor (worker) del scheduler
+    static long encoladas(Scheduler scheduler) {
+        return Scannable.from(scheduler).inners()
+                .mapToLong(worker -> {
+                    Integer enCola = worker.scan(Scannable.Attr.BUFFERED);
+                    return enCola == null ? 0 : enCola;
+                })
+                .sum();
+    }
+}
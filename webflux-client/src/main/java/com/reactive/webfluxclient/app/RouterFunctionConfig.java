@@ -1,5 +1,7 @@
 package com.reactive.webfluxclient.app;
 
+import com.reactive.webfluxclient.diagnostico.FiltroLentas;
+import com.reactive.webfluxclient.handler.DiagnosticoHandler;
 import com.reactive.webfluxclient.handler.ProductoHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,7 +16,8 @@ import static org.springframework.web.reactive.function.server.RouterFunctions.r
 public class RouterFunctionConfig {
 
     @Bean
-    public RouterFunction<ServerResponse> routes(ProductoHandler productoHandler){
+    public RouterFunction<ServerResponse> routes(ProductoHandler productoHandler, DiagnosticoHandler diagnosticoHandler,
+                                                 FiltroLentas filtroLentas){
         // Podemos tener varias rutas para el handler
         return route(GET("/api/client/products"), productoHandler::listar)
                 //.and(contentType(MediaType.APPLICATION_JSON)) -> Valida la estructura del request
@@ -22,6 +25,10 @@ public class RouterFunctionConfig {
                 .andRoute(POST("/api/client/products")/*.and(contentType(MediaType.APPLICATION_JSON))*/, productoHandler::crear)
                 .andRoute(POST("/api/client/products/upload/{id}")/*.and(contentType(MediaType.APPLICATION_JSON))*/, productoHandler::upload)
                 .andRoute(PUT("/api/client/products/{id}")/*.and(contentType(MediaType.APPLICATION_JSON))*/, productoHandler::editar)
-                .andRoute(DELETE("/api/client/products/{id}")/*.and(contentType(MediaType.APPLICATION_JSON))*/, productoHandler::eliminar);
+                .andRoute(DELETE("/api/client/products/{id}")/*.and(contentType(MediaType.APPLICATION_JSON))*/, productoHandler::eliminar)
+                // Últimas peticiones lentas (las registra el filtro de abajo)
+                .andRoute(GET("/api/client/diagnostics/slow-requests"), diagnosticoHandler::lentas)
+                // Mide todas las rutas y guarda las que superan el umbral
+                .filter(filtroLentas);
     }
 }
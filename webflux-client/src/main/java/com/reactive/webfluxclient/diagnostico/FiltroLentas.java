@@ -0,0 +1,91 @@
+package com.reactive.webfluxclient.diagnostico;
+
+import com.reactive.webfluxclient.handler.RespuestaDecorada;
+import com.reactive.webfluxclient.models.PeticionLenta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*Objetivo : Detecta peticiones lentas. Se aplica a todas las rutas de
+*            RouterFunctionConfig y mide cada petición hasta que termina de
+*            escribirse la respuesta (incluye los Flux que llegan de api-rest
+*            mientras se envía el cuerpo).
+*            - Por debajo del umbral solo se compara un número : no se copian
+*              parámetros ni se arma ningún objeto de diagnóstico
+*            - Por encima, se toma una muestra ('muestreo', 1.0 = todas) y se
+*              guarda en RegistroLentas (ruta, parámetros, tamaño del cuerpo,
+*              tiempo total y tiempo esperando a api-rest)
+*            - Las respuestas en streaming (text/event-stream, application/x-ndjson)
+*              no se registran : duran lo que el cliente siga conectado y
+*              desplazarían del buffer a las peticiones realmente lentas */
+@Component
+public class FiltroLentas implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private final RegistroLentas registroLentas;
+
+    private final long umbral;
+
+    private final double muestreo;
+
+    public FiltroLentas(RegistroLentas registroLentas,
+                        @Value("${configuration.lentas.umbral:PT0.5S}") Duration umbral,
+                        @Value("${configuration.lentas.muestreo:1.0}") double muestreo) {
+        this.registroLentas = registroLentas;
+        this.umbral = umbral.toNanos();
+        this.muestreo = muestreo;
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        MedicionPeticion medicion = new MedicionPeticion(System.nanoTime());
+        return next.handle(request)
+                // Se mide hasta que termina writeTo (el cuerpo ya enviado)
+                .<ServerResponse>map(respuesta -> enStreaming(respuesta) ? respuesta : new RespuestaDecorada(respuesta, escritura -> escritura
+                        .doFinally(senal -> terminar(request, medicion, respuesta.statusCode().value()))
+                        .contextWrite(contexto -> contexto.put(MedicionPeticion.class, medicion))))
+                // Una excepción que ningún handler convirtió en respuesta termina como 500
+                .doOnError(error -> terminar(request, medicion, 500))
+                .contextWrite(contexto -> contexto.put(MedicionPeticion.class, medicion));
+    }
+
+    public Duration getUmbral() {
+        return Duration.ofNanos(umbral);
+    }
+
+    private static boolean enStreaming(ServerResponse respuesta) {
+        MediaType tipo = respuesta.headers().getContentType();
+        return tipo != null && (MediaType.TEXT_EVENT_STREAM.isCompatibleWith(tipo)
+                || MediaType.APPLICATION_NDJSON.isCompatibleWith(tipo));
+    }
+
+    private void terminar(ServerRequest request, MedicionPeticion medicion, int estado) {
+        long duracion = System.nanoTime() - medicion.getInicio();
+        if (duracion < umbral)
+            return;
+        if (muestreo < 1.0 && ThreadLocalRandom.current().nextDouble() >= muestreo)
+            return;
+
+        PathPattern patron = (PathPattern) request.attribute(RouterFunctions.MATCHING_PATTERN_ATTRIBUTE).orElse(null);
+        Map<String, List<String>> parametros = new LinkedHashMap<>(request.queryParams());
+        request.pathVariables().forEach((nombre, valor) -> parametros.put(nombre, List.of(valor)));
+
+        registroLentas.registrar(new PeticionLenta(Instant.now(), request.method().name(),
+                patron != null ? patron.getPatternString() : request.path(), parametros,
+                request.headers().contentLength().orElse(-1), estado,
+                duracion / 1_000_000.0, medicion.getWebClientNanos() / 1_000_000.0));
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactive.webfluxclient.diagnostico;
+
+import reactor.util.context.ContextView;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/*Objetivo : Tiempos de una petición en curso. FiltroLentas la deja en el
+*            Context de Reactor y MedicionWebClient le suma lo que tarda cada
+*            llamada a api-rest de esa petición. Es el único estado que se guarda
+*            por petición; el filtro además crea la RespuestaDecorada y las lambdas
+*            de sus operadores. Los datos de diagnóstico se arman solo si la
+*            petición resulta lenta */
+public final class MedicionPeticion {
+
+    // Un updater sobre un long volatile en lugar de un AtomicLong : un objeto menos por petición
+    private static final AtomicLongFieldUpdater<MedicionPeticion> WEB_CLIENT =
+            AtomicLongFieldUpdater.newUpdater(MedicionPeticion.class, "webClientNanos");
+
+    private final long inicio;
+
+    private volatile long webClientNanos;
+
+    MedicionPeticion(long inicio) {
+        this.inicio = inicio;
+    }
+
+    // null si la operación no viene de una petición medida
+    public static MedicionPeticion de(ContextView contexto) {
+        return contexto.getOrDefault(MedicionPeticion.class, null);
+    }
+
+    public void sumarWebClient(long nanos) {
+        WEB_CLIENT.addAndGet(this, nanos);
+    }
+
+    long getInicio() {
+        return inicio;
+    }
+
+    long getWebClientNanos() {
+        return webClientNanos;
+    }
+}
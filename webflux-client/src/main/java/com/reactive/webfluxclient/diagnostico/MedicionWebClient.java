@@ -0,0 +1,32 @@
+package com.reactive.webfluxclient.diagnostico;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+/*Objetivo : Suma a la petición HTTP en curso (MedicionPeticion en el Context
+*            de Reactor) lo que tarda cada llamada del WebClient a api-rest, hasta
+*            terminar de leer el cuerpo de la respuesta. Fuera de una petición
+*            medida no hace nada */
+@Component
+public class MedicionWebClient implements ExchangeFilterFunction {
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.deferContextual(contexto -> {
+            MedicionPeticion medicion = MedicionPeticion.de(contexto);
+            if (medicion == null)
+                return next.exchange(request);
+
+            long inicio = System.nanoTime();
+            return next.exchange(request)
+                    .map(respuesta -> respuesta.mutate()
+                            .body(cuerpo -> cuerpo.doFinally(senal -> medicion.sumarWebClient(System.nanoTime() - inicio)))
+                            .build())
+                    .doOnError(error -> medicion.sumarWebClient(System.nanoTime() - inicio));
+        });
+    }
+}